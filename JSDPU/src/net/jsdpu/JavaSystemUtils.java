@@ -22,8 +22,11 @@ import static net.jsdpu.logger.Logger.getLogger;
 
 import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -37,8 +40,27 @@ import net.jsdpu.process.executors.MultiCaller;
 public class JavaSystemUtils {
     private static final Logger logger = getLogger(JavaSystemUtils.class);
 
+    /**
+     * System property that turns off fast-start profile of helper Java VMs
+     * when set to false.
+     * 
+     * @see #getHelperJvmArguments(Class)
+     */
+    public static final String FAST_START_PROPERTY = "net.jsdpu.helper.fastStart";
+
+    /**
+     * Extension of class data sharing archive looked for next to JAR.
+     */
+    private static final String ARCHIVE_EXTENSION = ".jsa";
+    /**
+     * Separator of JAR's name and Java VM version in archive's name.
+     */
+    private static final String ARCHIVE_VERSION_SEPARATOR = "-";
+
     private static String java;
 
+    private static int currentPid;
+
     /**
      * Static class.
      */
@@ -103,6 +125,22 @@ public class JavaSystemUtils {
      * @return command for a ProcessBuilder
      */
     public static String[] createCommandToRunMain(Class<?> clazz, List<String> arguments) {
+        return createCommandToRunMain(clazz, new ArrayList<String>(), arguments);
+    }
+
+    /**
+     * Generates command that will run class' main method in child process
+     * 
+     * @param clazz
+     *            class to be run
+     * @param jvmArguments
+     *            arguments to pass to a new Java VM (e.g. system properties)
+     * @param arguments
+     *            argument to pass to a new process
+     * @return command for a ProcessBuilder
+     */
+    public static String[] createCommandToRunMain(Class<?> clazz, List<String> jvmArguments,
+            List<String> arguments) {
         try {
             clazz.getDeclaredMethod("main", new Class[] { String[].class });
         } catch (NoSuchMethodException | SecurityException e) {
@@ -112,6 +150,7 @@ public class JavaSystemUtils {
         logger.trace("Preparation of " + clazz.getSimpleName() + " run: " + arguments);
         List<String> command = new ArrayList<String>();
         command.add(getJavaExecutablePath());
+        command.addAll(jvmArguments);
         command.add("-cp");
         command.add(getClassPathForClass(clazz));
         command.add(clazz.getName());
@@ -120,6 +159,112 @@ public class JavaSystemUtils {
         return command.toArray(new String[0]);
     }
 
+    /**
+     * Generates command that will run class' main method in short-lived
+     * helper Java VM (e.g. MultiCaller).
+     * 
+     * @see #getHelperJvmArguments(Class)
+     * 
+     * @param clazz
+     *            class to be run
+     * @param jvmArguments
+     *            arguments to pass to a new Java VM (e.g. system properties)
+     * @param arguments
+     *            argument to pass to a new process
+     * @return command for a ProcessBuilder
+     */
+    public static String[] createCommandToRunHelper(Class<?> clazz, List<String> jvmArguments,
+            List<String> arguments) {
+        List<String> helperArguments = getHelperJvmArguments(clazz);
+        helperArguments.addAll(jvmArguments);
+        return createCommandToRunMain(clazz, helperArguments, arguments);
+    }
+
+    /**
+     * Returns Java VM arguments of fast-start profile used for helper Java
+     * VMs.
+     * 
+     * <p>
+     * Helpers run for a short time and do little work, so their time is
+     * dominated by Java VM start up. Profile limits JIT to the first tier,
+     * uses serial GC with small initial heap and enables class data sharing -
+     * with archive of helper classes if one is found next to JAR (it is
+     * generated by <code>helperArchive</code> build task). Options unknown to
+     * used Java VM are ignored.
+     * </p>
+     * 
+     * <p>
+     * Maximal heap is not limited, as MultiCaller buffers whole output of
+     * commands run concurrently. Archive can be used only by Java VM that
+     * created it, so its name contains version of that Java VM.
+     * </p>
+     * 
+     * @see #FAST_START_PROPERTY
+     * 
+     * @param clazz
+     *            class to be run
+     * @return list of arguments, empty if profile is turned off
+     */
+    public static List<String> getHelperJvmArguments(Class<?> clazz) {
+        List<String> arguments = new ArrayList<String>();
+        if ("false".equals(getProperty(FAST_START_PROPERTY)))
+            return arguments;
+
+        arguments.add("-XX:+IgnoreUnrecognizedVMOptions");
+        arguments.add("-XX:+TieredCompilation");
+        arguments.add("-XX:TieredStopAtLevel=1");
+        arguments.add("-XX:+UseSerialGC");
+        arguments.add("-Xms8m");
+        arguments.add("-Xshare:auto");
+        File archive = getHelperArchive(clazz);
+        if (archive != null) {
+            arguments.add("-XX:SharedArchiveFile=" + archive.getPath());
+            // -X options aren't covered by IgnoreUnrecognizedVMOptions
+            if (isJava9OrLater()) {
+                // archive mismatch warnings would be printed into helper's output
+                arguments.add("-Xlog:cds=off");
+                arguments.add("-Xlog:cds+dynamic=off");
+            }
+        }
+        logger.detailedTrace("Helper Java VM arguments: " + arguments);
+        return arguments;
+    }
+
+    /**
+     * Returns class data sharing archive placed next to JAR containing class,
+     * created by current Java VM.
+     * 
+     * @param clazz
+     *            class to be run
+     * @return archive if exists, null otherwise
+     */
+    private static File getHelperArchive(Class<?> clazz) {
+        CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+        if (codeSource == null)
+            return null;
+        try {
+            File jar = new File(codeSource.getLocation().toURI());
+            if (!jar.isFile())
+                return null;
+            File archive = new File(jar.getPath().replaceFirst("\\.jar$", "")
+                    + ARCHIVE_VERSION_SEPARATOR + getProperty("java.vm.version")
+                    + ARCHIVE_EXTENSION);
+            return archive.isFile() ? archive : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether current Java VM (which is also used for helpers) is
+     * Java 9 or later.
+     * 
+     * @return true if Java 9 or later
+     */
+    private static boolean isJava9OrLater() {
+        return !getProperty("java.specification.version", "1.").startsWith("1.");
+    }
+
     /**
      * Returns ClassPath that will be needed to run main(String[]) method.
      * 
@@ -145,6 +290,26 @@ public class JavaSystemUtils {
         return classPath;
     }
 
+    /**
+     * Returns PID of current Java VM.
+     * 
+     * @return PID, or -1 if it cannot be determined
+     */
+    public static int getCurrentPid() {
+        if (currentPid == 0) {
+            // name has format pid@hostname on all major VMs
+            String name = ManagementFactory.getRuntimeMXBean().getName();
+            int at = name.indexOf('@');
+            try {
+                currentPid = Integer.parseInt(at > 0 ? name.substring(0, at) : name);
+            } catch (NumberFormatException e) {
+                logger.warning("Cannot determine PID from VM name: " + name);
+                currentPid = -1;
+            }
+        }
+        return currentPid;
+    }
+
     /**
      * Finds out whether class should be run as JAR or from byte code.
      * 
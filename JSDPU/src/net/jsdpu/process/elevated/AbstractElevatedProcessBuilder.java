@@ -152,6 +152,11 @@ abstract class AbstractElevatedProcessBuilder implements ElevatedProcessBuilder
         return getProcessBuilder().start();
     }
 
+    @Override
+    public boolean isInputForwarded() {
+        return true;
+    }
+
     /**
      * Returns ProcessBuilder used by this ElevatedProcessBuilder.
      * 
@@ -148,6 +148,14 @@ public interface ElevatedProcessBuilder {
     @SuppressWarnings("javadoc")
     public Process start() throws IOException;
 
+    /**
+     * Returns whether elevated process receives standard input written into
+     * the started process (some elevation wrappers don't forward it).
+     * 
+     * @return true if standard input is forwarded to elevated process
+     */
+    public boolean isInputForwarded();
+
     /**
      * Returns ProcessBuilder prepared for elevating the processes.
      * 
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.elevated;
+
+import java.util.List;
+
+/**
+ * Way of running commands with the privilege elevation (e.g. pkexec, sudo).
+ * 
+ * <p>
+ * Backend is used by prepending its elevation command to the command that
+ * should be run as root.
+ * </p>
+ * 
+ * @see net.jsdpu.process.elevated.ElevationBackends
+ */
+public interface ElevationBackend {
+    /**
+     * Returns backend's name.
+     * 
+     * @return name
+     */
+    public String getName();
+
+    /**
+     * Returns whether backend can be used in current environment.
+     * 
+     * <p>
+     * Check is performed once, and its result is cached.
+     * </p>
+     * 
+     * @return true if backend is available
+     */
+    public boolean isAvailable();
+
+    /**
+     * Returns command that should precede elevated command.
+     * 
+     * <p>
+     * Empty command means that commands don't need an elevation.
+     * </p>
+     * 
+     * @return elevation command
+     */
+    public List<String> getElevationCommand();
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.elevated;
+
+import static java.lang.System.getProperty;
+import static java.util.Arrays.asList;
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jsdpu.logger.Logger;
+
+import com.google.common.base.Objects;
+
+/**
+ * Selects ElevationBackend that should be used in current environment.
+ * 
+ * <p>
+ * Backends are checked in order from the cheapest one - first available one
+ * is used. Selection is performed once for each value of
+ * {@link #BACKEND_PROPERTY}, and its result is cached.
+ * </p>
+ * 
+ * @see net.jsdpu.process.elevated.ElevationBackend
+ */
+public final class ElevationBackends {
+    private static final Logger logger = getLogger(ElevationBackends.class);
+
+    /**
+     * System property forcing backend with given name (e.g. sudo) instead of
+     * checking which one is available.
+     */
+    public static final String BACKEND_PROPERTY = "net.jsdpu.elevation.backend";
+
+    /**
+     * Prefix of system properties overriding tool used by backend, e.g.
+     * <code>net.jsdpu.elevation.tool.sudo=/usr/local/bin/sudo</code>.
+     */
+    public static final String TOOL_PROPERTY_PREFIX = "net.jsdpu.elevation.tool.";
+
+    private static ElevationBackend linuxBackend;
+    private static String linuxBackendForced;
+
+    /**
+     * Static class.
+     */
+    private ElevationBackends() {
+    }
+
+    /**
+     * Returns backend used on Linux.
+     * 
+     * @return backend
+     * @throws IllegalStateException
+     *             thrown when {@link #BACKEND_PROPERTY} names unknown backend
+     */
+    public static synchronized ElevationBackend getLinuxBackend() {
+        String forced = getProperty(BACKEND_PROPERTY);
+        if (linuxBackend == null || !Objects.equal(forced, linuxBackendForced)) {
+            List<ElevationBackend> backends = getLinuxBackends();
+            linuxBackend = select(backends, backends.get(backends.size() - 1));
+            linuxBackendForced = forced;
+            logger.debug("Using elevation backend: " + linuxBackend.getName());
+        }
+        return linuxBackend;
+    }
+
+    /**
+     * Returns backends supported on Linux, starting from the cheapest one.
+     * 
+     * <ul>
+     * <li><code>root</code> - no elevation needed,</li>
+     * <li><code>sudo</code> - sudo without password (<code>sudo -n</code>),</li>
+     * <li><code>doas</code> - doas without password (<code>doas -n</code>),</li>
+     * <li><code>run0</code> - systemd's run0 (requires polkit agent),</li>
+     * <li><code>pkexec</code> - polkit's pkexec (requires polkit agent).</li>
+     * </ul>
+     * 
+     * <p>
+     * Polkit based backends cannot be probed without asking user for
+     * credentials, so their availability only means that tool is installed
+     * and that session can host authentication agent - whether user will be
+     * actually authorized is known only when elevated command is run.
+     * </p>
+     * 
+     * @return list of backends
+     */
+    public static List<ElevationBackend> getLinuxBackends() {
+        List<ElevationBackend> backends = new ArrayList<ElevationBackend>();
+        backends.add(new RootElevationBackend());
+        backends.add(tool("sudo", asList("-n", "--"), asList("-n", "true")));
+        backends.add(tool("doas", asList("-n"), asList("-n", "true")));
+        backends.add(polkitTool("run0"));
+        backends.add(polkitTool("pkexec"));
+        return backends;
+    }
+
+    /**
+     * Selects first available backend, or backend forced with
+     * {@link #BACKEND_PROPERTY}.
+     * 
+     * @see #BACKEND_PROPERTY
+     * 
+     * @param backends
+     *            backends to check
+     * @param fallback
+     *            backend used if none of them is available
+     * @return selected backend
+     * @throws IllegalStateException
+     *             thrown when forced backend is not one of given backends
+     */
+    public static ElevationBackend select(List<ElevationBackend> backends,
+            ElevationBackend fallback) {
+        String forced = getProperty(BACKEND_PROPERTY);
+        if (forced != null) {
+            for (ElevationBackend backend : backends)
+                if (forced.equals(backend.getName()))
+                    return backend;
+            List<String> names = new ArrayList<String>();
+            for (ElevationBackend backend : backends)
+                names.add(backend.getName());
+            IllegalStateException exception = new IllegalStateException("Unknown "
+                    + BACKEND_PROPERTY + ": " + forced + " (supported: " + names + ")");
+            logger.error("Cannot select forced elevation backend (exception thrown)", exception);
+            throw exception;
+        }
+        for (ElevationBackend backend : backends)
+            if (backend.isAvailable())
+                return backend;
+        logger.warning("No elevation backend available, using: " + fallback.getName());
+        return fallback;
+    }
+
+    /**
+     * Creates backend using tool.
+     * 
+     * @param name
+     *            name of backend and default tool
+     * @param arguments
+     *            arguments passed before elevated command
+     * @param probeArguments
+     *            arguments used for checking availability
+     * @return backend
+     */
+    private static ElevationBackend tool(String name, List<String> arguments,
+            List<String> probeArguments) {
+        return new ToolElevationBackend(name, getProperty(TOOL_PROPERTY_PREFIX + name, name),
+                arguments, probeArguments);
+    }
+
+    /**
+     * Creates backend using polkit based tool.
+     * 
+     * @param name
+     *            name of backend and default tool
+     * @return backend
+     */
+    private static ElevationBackend polkitTool(String name) {
+        return new PolkitElevationBackend(name, getProperty(TOOL_PROPERTY_PREFIX + name, name));
+    }
+}
@@ -15,19 +15,27 @@
  */
 package net.jsdpu.process.elevated;
 
+import static net.jsdpu.process.elevated.ElevationBackends.getLinuxBackend;
+
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * ProcessBuilder allowing creation of an elevated subprocess on Linux.
  * 
+ * <p>
+ * Elevation is performed by ElevationBackend selected for current
+ * environment.
+ * </p>
+ * 
+ * @see net.jsdpu.process.elevated.ElevationBackends#getLinuxBackend()
  * @see net.jsdpu.process.elevated.AbstractElevatedProcessBuilder
  */
 public class LinuxElevatedProcessBuilder extends AbstractElevatedProcessBuilder {
     @Override
     public ProcessBuilder getProcessBuilder() {
         List<String> linuxElevationCommand = new ArrayList<String>();
-        linuxElevationCommand.add("pkexec");
+        linuxElevationCommand.addAll(getLinuxBackend().getElevationCommand());
         linuxElevationCommand.addAll(getCommand());
         getBuilder().command(linuxElevationCommand);
         return getBuilder();
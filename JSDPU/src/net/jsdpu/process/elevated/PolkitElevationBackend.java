@@ -0,0 +1,85 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.elevated;
+
+import static java.lang.System.getenv;
+import static java.util.Arrays.asList;
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.util.ArrayList;
+
+import net.jsdpu.logger.Logger;
+
+/**
+ * ElevationBackend running commands through polkit based tool (e.g. pkexec,
+ * run0).
+ * 
+ * <p>
+ * Such tools ask for credentials through polkit authentication agent, which
+ * cannot be checked without starting authentication. So backend is available
+ * if tool is installed (<code>--version</code> succeeds) and if session can
+ * host an agent - there is graphical session (<code>DISPLAY</code> or
+ * <code>WAYLAND_DISPLAY</code> is set) for a desktop agent, or a terminal for
+ * tool's textual one. It doesn't guarantee that user will be authorized.
+ * </p>
+ */
+public class PolkitElevationBackend extends ToolElevationBackend {
+    private static final Logger logger = getLogger(PolkitElevationBackend.class);
+
+    private Boolean agentSession;
+
+    /**
+     * Creates backend.
+     * 
+     * @param name
+     *            backend's name
+     * @param tool
+     *            tool's name or path to it
+     */
+    public PolkitElevationBackend(String name, String tool) {
+        super(name, tool, new ArrayList<String>(), asList("--version"));
+    }
+
+    @Override
+    public synchronized boolean isAvailable() {
+        if (agentSession == null) {
+            agentSession = hasAgentSession();
+            logger.debug("Session of " + getName() + " can host polkit agent: " + agentSession);
+        }
+        return agentSession && super.isAvailable();
+    }
+
+    /**
+     * Checks whether session can host polkit authentication agent.
+     * 
+     * @return true if there is graphical session or terminal
+     */
+    protected boolean hasAgentSession() {
+        return isSet(getenv("DISPLAY")) || isSet(getenv("WAYLAND_DISPLAY"))
+                || System.console() != null;
+    }
+
+    /**
+     * Checks whether environment variable is set.
+     * 
+     * @param value
+     *            variable's value
+     * @return true if value is not empty
+     */
+    private static boolean isSet(String value) {
+        return value != null && !value.isEmpty();
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.elevated;
+
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jsdpu.logger.Logger;
+
+/**
+ * ElevationBackend used when current process already runs as root (with
+ * effective UID 0) - commands are run as they are.
+ */
+public class RootElevationBackend implements ElevationBackend {
+    private static final Logger logger = getLogger(RootElevationBackend.class);
+
+    private final String statusFile;
+    private Boolean available;
+
+    /**
+     * Creates backend checking current process.
+     */
+    public RootElevationBackend() {
+        this("/proc/self/status");
+    }
+
+    /**
+     * Creates backend checking given process' status file.
+     * 
+     * @param statusFile
+     *            path to /proc/[pid]/status file
+     */
+    public RootElevationBackend(String statusFile) {
+        this.statusFile = statusFile;
+    }
+
+    @Override
+    public String getName() {
+        return "root";
+    }
+
+    @Override
+    public synchronized boolean isAvailable() {
+        if (available == null) {
+            available = readEffectiveUid() == 0;
+            logger.debug("Process runs as root: " + available);
+        }
+        return available;
+    }
+
+    @Override
+    public List<String> getElevationCommand() {
+        return new ArrayList<String>();
+    }
+
+    /**
+     * Reads effective UID from status file.
+     * 
+     * @return effective UID or -1 if it cannot be read
+     */
+    private long readEffectiveUid() {
+        try (BufferedReader reader = new BufferedReader(new FileReader(statusFile))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                if (line.startsWith("Uid:"))
+                    return Long.parseLong(line.split("\\s+")[2]);
+        } catch (IOException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            logger.warning("Failed to read effective UID (exception thrown)", e);
+        }
+        return -1;
+    }
+}
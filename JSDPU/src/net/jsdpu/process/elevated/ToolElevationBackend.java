@@ -0,0 +1,124 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.elevated;
+
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jsdpu.logger.Logger;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * ElevationBackend running commands through external tool.
+ * 
+ * <p>
+ * Backend is available if probe command - tool run with probe arguments -
+ * finishes with 0 exit value. Probe should never ask user for credentials.
+ * </p>
+ */
+public class ToolElevationBackend implements ElevationBackend {
+    private static final Logger logger = getLogger(ToolElevationBackend.class);
+
+    private final String name;
+    private final String tool;
+    private final List<String> arguments;
+    private final List<String> probeArguments;
+    private Boolean available;
+
+    /**
+     * Creates backend.
+     * 
+     * @param name
+     *            backend's name
+     * @param tool
+     *            tool's name or path to it
+     * @param arguments
+     *            arguments passed to tool before elevated command
+     * @param probeArguments
+     *            arguments passed to tool to check whether it's usable
+     */
+    public ToolElevationBackend(String name, String tool, List<String> arguments,
+            List<String> probeArguments) {
+        this.name = name;
+        this.tool = tool;
+        this.arguments = ImmutableList.copyOf(arguments);
+        this.probeArguments = ImmutableList.copyOf(probeArguments);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns tool's name or path.
+     * 
+     * @return tool
+     */
+    public String getTool() {
+        return tool;
+    }
+
+    @Override
+    public synchronized boolean isAvailable() {
+        if (available == null) {
+            available = probe();
+            logger.debug("Elevation backend " + name + " available: " + available);
+        }
+        return available;
+    }
+
+    @Override
+    public List<String> getElevationCommand() {
+        List<String> command = new ArrayList<String>();
+        command.add(tool);
+        command.addAll(arguments);
+        return command;
+    }
+
+    /**
+     * Runs probe command.
+     * 
+     * @return true if probe succeeded
+     */
+    private boolean probe() {
+        if (tool.contains(File.separator) && !new File(tool).canExecute())
+            return false;
+
+        List<String> command = new ArrayList<String>();
+        command.add(tool);
+        command.addAll(probeArguments);
+        logger.trace("Probing elevation backend: " + command);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getOutputStream().close();
+            while (process.getInputStream().read() >= 0)
+                ;
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            logger.trace("Elevation backend " + name + " cannot be run: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
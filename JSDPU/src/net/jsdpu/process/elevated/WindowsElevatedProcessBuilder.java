@@ -50,6 +50,14 @@ public class WindowsElevatedProcessBuilder extends AbstractElevatedProcessBuilde
         return getBuilder();
     }
 
+    /**
+     * UAC handler doesn't forward standard input to elevated process.
+     */
+    @Override
+    public boolean isInputForwarded() {
+        return !isVistaOrLater();
+    }
+
     /**
      * Returns whether current system is Windows Vista or newer.
      * 
@@ -22,5 +22,7 @@
  * @see net.jsdpu.process.elevated.LinuxElevatedProcessBuilder
  * @see net.jsdpu.process.elevated.MacOSElevatedProcessBuilder
  * @see net.jsdpu.process.elevated.WindowsElevatedProcessBuilder
+ * @see net.jsdpu.process.elevated.ElevationBackend
+ * @see net.jsdpu.process.elevated.ElevationBackends
  */
 package net.jsdpu.process.elevated; 
\ No newline at end of file
@@ -53,9 +53,21 @@ public abstract class AbstractProcessExecutor implements IProcessExecutor {
         return executeCommands(secureMultipleCommands(commands));
     }
 
+    @Override
+    public ExecutionQueueReader execute(List<String[]> commands, int parallelism)
+            throws IOException {
+        return executeCommands(secureMultipleCommands(commands), parallelism);
+    }
+
     @Override
     public ExecutionQueueReader executeRoot(List<String[]> commands) throws IOException {
-        return executeCommands(rootCommand(secureMultipleCommands(commands)));
+        return executeRoot(commands, 1);
+    }
+
+    @Override
+    public ExecutionQueueReader executeRoot(List<String[]> commands, int parallelism)
+            throws IOException {
+        return executeCommands(rootCommand(secureMultipleCommands(commands), parallelism));
     }
 
     @Override
@@ -65,6 +77,14 @@ public abstract class AbstractProcessExecutor implements IProcessExecutor {
         return execute(commands);
     }
 
+    @Override
+    public ExecutionQueueReader execute(List<String[]> commands, boolean asRoot, int parallelism)
+            throws IOException {
+        if (asRoot)
+            return executeRoot(commands, parallelism);
+        return execute(commands, parallelism);
+    }
+
     /**
      * Actual execution of commands.
      * 
@@ -75,6 +95,22 @@ public abstract class AbstractProcessExecutor implements IProcessExecutor {
      *             thrown when error occurs in system dependent process
      */
     private ExecutionQueueReader executeCommands(List<String[]> commands) throws IOException {
+        return executeCommands(commands, 1);
+    }
+
+    /**
+     * Actual execution of commands.
+     * 
+     * @param commands
+     *            commands that should be executed
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return reader, which allows to read result of processing
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     */
+    protected ExecutionQueueReader executeCommands(List<String[]> commands, int parallelism)
+            throws IOException {
         logger.trace("Creating ExecutionQueue for: " + listToString(commands));
 
         List<ProcessBuilder> processBuilders = new ArrayList<ProcessBuilder>();
@@ -82,7 +118,7 @@ public abstract class AbstractProcessExecutor implements IProcessExecutor {
             processBuilders.add(new ProcessBuilder(command));
 
         logger.detailedTrace("Created ExecutionQueue");
-        return new ExecutionQueueReader(new ProcessQueue(processBuilders));
+        return new ExecutionQueueReader(new ProcessQueue(processBuilders, parallelism));
     }
 
     /**
@@ -94,4 +130,23 @@ public abstract class AbstractProcessExecutor implements IProcessExecutor {
      * @return single command
      */
     protected abstract List<String[]> rootCommand(List<String[]> commands);
+
+    /**
+     * Generates command(s) executing all commands passed into ProcessExecutor
+     * as root, running up to given number of them at once.
+     * 
+     * <p>
+     * By default parallelism is ignored - it should be overridden by
+     * ProcessExecutors able to run elevated commands concurrently.
+     * </p>
+     * 
+     * @param commands
+     *            commands passed into ProcessExecutor
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return single command
+     */
+    protected List<String[]> rootCommand(List<String[]> commands, int parallelism) {
+        return rootCommand(commands);
+    }
 }
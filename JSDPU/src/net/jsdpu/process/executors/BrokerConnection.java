@@ -0,0 +1,544 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.asList;
+import static net.jsdpu.JavaSystemUtils.createCommandToRunMain;
+import static net.jsdpu.logger.Logger.getLogger;
+import static net.jsdpu.process.executors.CommandFrames.writeCommands;
+import static net.jsdpu.process.executors.ElevatedBroker.IDLE_TIMEOUT_PROPERTY;
+import static net.jsdpu.process.executors.MultiCaller.*;
+import static net.jsdpu.process.queue.QueueFrames.OUTPUT;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jsdpu.logger.Logger;
+import net.jsdpu.process.queue.FrameDecoder;
+
+/**
+ * Connection to ElevatedBroker, that starts it on demand and passes batches
+ * of commands to it.
+ * 
+ * <p>
+ * Results of each batch are returned as a Process, which streams are fed by
+ * broker's frames, so they can be read by ExecutionQueueReader as if they
+ * were MultiCaller's. Only one batch is handled at a time - sending next batch
+ * buffers whatever remained unread from the previous one.
+ * </p>
+ * 
+ * <p>
+ * Exit value of batch is exit value of the first of its commands that failed,
+ * or 0 if all of them succeeded. Destroying batch closes connection, which
+ * makes broker destroy batch's processes and finish - next batch starts it
+ * again.
+ * </p>
+ * 
+ * <p>
+ * Frames are decoded while holding only the read lock, never connection's
+ * monitor, so that batch can be destroyed and connection closed while
+ * a reader waits for broker's next frame. Read lock is always acquired
+ * before the monitor.
+ * </p>
+ * 
+ * @see net.jsdpu.process.executors.ElevatedBroker
+ */
+class BrokerConnection {
+    private static final Logger logger = getLogger(BrokerConnection.class);
+
+    /**
+     * Exit value of batch that ended before all of its commands finished
+     * (because it was destroyed or broker failed).
+     */
+    static final int ABORTED = -1;
+
+    private final List<String> elevationCommand;
+    private final long idleTimeout;
+    private final Object readLock;
+
+    private Process broker;
+    private DataOutputStream input;
+    private FrameDecoder decoder;
+    private BrokeredProcess currentBatch;
+
+    /**
+     * Creates connection.
+     * 
+     * @param elevationCommand
+     *            command preceding broker's run (performing the privilege
+     *            elevation)
+     * @param idleTimeout
+     *            time in milliseconds after which idle broker finishes
+     */
+    BrokerConnection(List<String> elevationCommand, long idleTimeout) {
+        this.elevationCommand = elevationCommand;
+        this.idleTimeout = idleTimeout;
+        readLock = new Object();
+    }
+
+    /**
+     * Sends batch of commands to broker, starting it if necessary.
+     * 
+     * <p>
+     * If broker finished in the meantime (e.g. due to idle timeout) before it
+     * started any of commands, it is started again and batch is resent.
+     * </p>
+     * 
+     * @param commands
+     *            commands to run
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return process representing batch's results
+     * @throws IOException
+     *             thrown when broker cannot be started or it doesn't respond
+     */
+    Process execute(List<String[]> commands, int parallelism) throws IOException {
+        synchronized (readLock) {
+            BrokeredProcess previousBatch;
+            synchronized (this) {
+                previousBatch = currentBatch;
+            }
+            if (previousBatch != null)
+                previousBatch.finish();
+            if (commands.isEmpty())
+                return new BrokeredProcess(0);
+
+            for (int attempt = 0;; attempt++) {
+                try {
+                    BrokeredProcess batch = send(commands, parallelism);
+                    batch.readNextFrame();
+                    return batch;
+                } catch (IOException e) {
+                    close();
+                    if (attempt > 0) {
+                        logger.error("Broker failed to respond (exception thrown)", e);
+                        throw e;
+                    }
+                    logger.debug("Broker unavailable - restarting it");
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes connection, which makes broker finish.
+     */
+    synchronized void close() {
+        logger.trace("Closing broker connection");
+        try {
+            if (input != null)
+                input.close();
+            if (broker != null)
+                broker.getInputStream().close();
+        } catch (IOException e) {
+        }
+        if (currentBatch != null)
+            currentBatch.done = true;
+        currentBatch = null;
+        broker = null;
+        input = null;
+        decoder = null;
+    }
+
+    /**
+     * Writes batch of commands to broker, starting it if necessary.
+     * 
+     * @param commands
+     *            commands to run
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return process representing batch's results
+     * @throws IOException
+     *             thrown when broker cannot be started or written to
+     */
+    private synchronized BrokeredProcess send(List<String[]> commands, int parallelism)
+            throws IOException {
+        if (!isAlive())
+            start();
+        writeCommands(input, commands, parallelism);
+        currentBatch = new BrokeredProcess(commands.size());
+        return currentBatch;
+    }
+
+    /**
+     * Returns whether broker is running.
+     * 
+     * @return true if broker is running
+     */
+    private boolean isAlive() {
+        if (broker == null)
+            return false;
+        try {
+            broker.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Starts broker.
+     * 
+     * @throws IOException
+     *             thrown when broker cannot be started
+     */
+    private void start() throws IOException {
+        List<String> command = new ArrayList<String>(elevationCommand);
+        command.addAll(asList(createCommandToRunMain(ElevatedBroker.class,
+                asList("-D" + IDLE_TIMEOUT_PROPERTY + "=" + idleTimeout), new ArrayList<String>())));
+        logger.trace("Starting broker: " + command);
+
+        broker = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+        input = new DataOutputStream(new BufferedOutputStream(broker.getOutputStream()));
+        decoder = new FrameDecoder(broker.getInputStream());
+    }
+
+    /**
+     * Results of single batch run by broker.
+     * 
+     * <p>
+     * Frames are read on demand by whichever stream needs more data, and
+     * translated into MultiCaller's output. Batch ends with exit frame of its
+     * last command.
+     * </p>
+     */
+    private class BrokeredProcess extends Process implements FrameDecoder.Listener {
+        private final ByteQueue outputBuffer;
+        private final ByteQueue errorBuffer;
+        private final int commands;
+        private int exitedCommands;
+        private int firstFailedCommand;
+        private int firstFailure;
+        private boolean done;
+
+        /**
+         * Creates process.
+         * 
+         * @param commands
+         *            number of commands in batch
+         */
+        BrokeredProcess(int commands) {
+            outputBuffer = new ByteQueue();
+            errorBuffer = new ByteQueue();
+            this.commands = commands;
+            exitedCommands = 0;
+            firstFailedCommand = commands;
+            firstFailure = 0;
+            done = commands == 0;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("Commands run by broker have no input");
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new BatchInputStream(outputBuffer);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new BatchInputStream(errorBuffer);
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            try {
+                finish();
+            } catch (IOException e) {
+            }
+            return exitValue();
+        }
+
+        @Override
+        public int exitValue() {
+            synchronized (BrokerConnection.this) {
+                if (!done)
+                    throw new IllegalThreadStateException("Batch is still running");
+                return exitedCommands < commands ? ABORTED : firstFailure;
+            }
+        }
+
+        @Override
+        public void destroy() {
+            synchronized (BrokerConnection.this) {
+                if (currentBatch == this) {
+                    logger.debug("Destroying batch run by broker");
+                    close();
+                }
+            }
+        }
+
+        @Override
+        public void started(int command) {
+            byte[] frame = frame(BEGIN_FRAME + " " + command).getBytes();
+            synchronized (BrokerConnection.this) {
+                outputBuffer.append(frame, 0, frame.length);
+                errorBuffer.append(frame, 0, frame.length);
+            }
+        }
+
+        @Override
+        public void write(int command, byte stream, byte[] payload, int offset, int length) {
+            synchronized (BrokerConnection.this) {
+                (stream == OUTPUT ? outputBuffer : errorBuffer).append(payload, offset, length);
+            }
+        }
+
+        @Override
+        public void exited(int command, int exitValue) {
+            byte[] frame = frame(EXIT_FRAME + " " + command + " " + exitValue).getBytes();
+            synchronized (BrokerConnection.this) {
+                if (done)
+                    return;
+                outputBuffer.append(frame, 0, frame.length);
+                if (exitValue != 0 && command < firstFailedCommand) {
+                    firstFailedCommand = command;
+                    firstFailure = exitValue;
+                }
+                if (++exitedCommands == commands) {
+                    done = true;
+                    currentBatch = null;
+                }
+            }
+        }
+
+        /**
+         * Reads frames until the end of batch.
+         * 
+         * @throws IOException
+         *             thrown when broker failed
+         */
+        void finish() throws IOException {
+            synchronized (readLock) {
+                try {
+                    while (!isDone())
+                        readNextFrame();
+                } catch (IOException e) {
+                    logger.error("Broker failed during batch (exception thrown)", e);
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Reads data from buffer, reading frames until buffer has any data or
+         * batch is finished.
+         * 
+         * @param buffer
+         *            buffer to read from
+         * @param b
+         *            target array
+         * @param off
+         *            offset
+         * @param len
+         *            maximal length
+         * @return number of read bytes or -1 if batch finished
+         * @throws IOException
+         *             thrown when broker failed
+         */
+        private int read(ByteQueue buffer, byte[] b, int off, int len) throws IOException {
+            synchronized (readLock) {
+                try {
+                    while (isWaitingFor(buffer))
+                        readNextFrame();
+                } catch (IOException e) {
+                    logger.error("Broker failed during batch (exception thrown)", e);
+                    throw e;
+                }
+            }
+            synchronized (BrokerConnection.this) {
+                if (buffer.isEmpty())
+                    return -1;
+                return buffer.read(b, off, len);
+            }
+        }
+
+        /**
+         * Returns whether batch ended.
+         * 
+         * @return true if batch ended or was destroyed
+         */
+        private boolean isDone() {
+            synchronized (BrokerConnection.this) {
+                return done;
+            }
+        }
+
+        /**
+         * Returns whether buffer is empty and batch can still fill it.
+         * 
+         * @param buffer
+         *            checked buffer
+         * @return true if next frame should be read
+         */
+        private boolean isWaitingFor(ByteQueue buffer) {
+            synchronized (BrokerConnection.this) {
+                return buffer.isEmpty() && !done;
+            }
+        }
+
+        /**
+         * Reads single frame and puts its content into buffers.
+         * 
+         * <p>
+         * Must be called with read lock held. Connection is closed if broker
+         * failed, while failure caused by destroying batch during the read is
+         * ignored.
+         * </p>
+         * 
+         * @throws IOException
+         *             thrown when broker failed
+         */
+        private void readNextFrame() throws IOException {
+            FrameDecoder batchDecoder;
+            synchronized (BrokerConnection.this) {
+                if (done)
+                    return;
+                batchDecoder = decoder;
+            }
+            try {
+                if (!batchDecoder.decodeFrame(this))
+                    throw new EOFException("Broker finished during batch");
+            } catch (IOException e) {
+                if (isDone())
+                    return;
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Stream reading from one of buffers.
+         */
+        private class BatchInputStream extends InputStream {
+            private final ByteQueue buffer;
+
+            /**
+             * Creates stream.
+             * 
+             * @param buffer
+             *            buffer to read from
+             */
+            BatchInputStream(ByteQueue buffer) {
+                this.buffer = buffer;
+            }
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0)
+                    return 0;
+                return BrokeredProcess.this.read(buffer, b, off, len);
+            }
+
+            @Override
+            public int available() {
+                synchronized (BrokerConnection.this) {
+                    return buffer.size();
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable FIFO of bytes.
+     */
+    private static class ByteQueue {
+        private byte[] data = new byte[8192];
+        private int start = 0;
+        private int end = 0;
+
+        /**
+         * Appends bytes.
+         * 
+         * @param bytes
+         *            buffer with bytes to append
+         * @param offset
+         *            offset of bytes
+         * @param length
+         *            number of bytes
+         */
+        void append(byte[] bytes, int offset, int length) {
+            if (end + length > data.length) {
+                int size = size();
+                byte[] target = size + length > data.length ? new byte[Math.max(
+                        data.length * 2, size + length)] : data;
+                arraycopy(data, start, target, 0, size);
+                data = target;
+                start = 0;
+                end = size;
+            }
+            arraycopy(bytes, offset, data, end, length);
+            end += length;
+        }
+
+        /**
+         * Reads bytes.
+         * 
+         * @param b
+         *            target array
+         * @param off
+         *            offset
+         * @param len
+         *            maximal length
+         * @return number of read bytes
+         */
+        int read(byte[] b, int off, int len) {
+            int read = Math.min(len, size());
+            arraycopy(data, start, b, off, read);
+            start += read;
+            return read;
+        }
+
+        /**
+         * Returns number of stored bytes.
+         * 
+         * @return number of bytes
+         */
+        int size() {
+            return end - start;
+        }
+
+        /**
+         * Returns whether there are no stored bytes.
+         * 
+         * @return true if empty
+         */
+        boolean isEmpty() {
+            return start == end;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary, length-prefixed protocol used for passing commands into elevated
+ * helper processes.
+ * 
+ * <p>
+ * Batch of commands is encoded as: number of commands, parallelism, and for
+ * each command number of its arguments followed by arguments - each as its
+ * length and UTF-8 bytes. Since arguments are never joined into a console
+ * line, they need neither escaping nor parsing. Sizes are checked before
+ * anything is allocated, so corrupted input cannot exhaust memory.
+ * </p>
+ * 
+ * <p>
+ * Results of batches run by ElevatedBroker are streamed back as QueueFrames.
+ * </p>
+ * 
+ * @see net.jsdpu.process.executors.ElevatedBroker
+ * @see net.jsdpu.process.executors.BrokerConnection
+ * @see net.jsdpu.process.queue.QueueFrames
+ */
+final class CommandFrames {
+    /**
+     * Maximal number of arguments of single command.
+     */
+    static final int MAX_ARGUMENTS = 64 * 1024;
+    /**
+     * Maximal size of single argument in bytes.
+     */
+    static final int MAX_ARGUMENT_SIZE = 1024 * 1024;
+
+    /**
+     * Charset used for arguments' encoding.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Static class.
+     */
+    private CommandFrames() {
+    }
+
+    /**
+     * Writes batch of commands.
+     * 
+     * @param output
+     *            target stream
+     * @param commands
+     *            commands to write
+     * @param parallelism
+     *            maximal number of commands that should be run at once
+     * @throws IOException
+     *             thrown when batch cannot be written
+     */
+    static void writeCommands(DataOutputStream output, List<String[]> commands, int parallelism)
+            throws IOException {
+        output.writeInt(commands.size());
+        output.writeInt(parallelism);
+        for (String[] command : commands) {
+            output.writeInt(command.length);
+            for (String argument : command) {
+                byte[] bytes = argument.getBytes(UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads batch of commands.
+     * 
+     * @param input
+     *            source stream
+     * @return batch, or null if stream ended before next batch
+     * @throws IOException
+     *             thrown when batch cannot be read or exceeds limits
+     */
+    static Batch readCommands(DataInputStream input) throws IOException {
+        int size;
+        try {
+            size = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int parallelism = input.readInt();
+        checkSize("number of commands", size, Integer.MAX_VALUE);
+
+        List<String[]> commands = new ArrayList<String[]>();
+        for (int i = 0; i < size; i++) {
+            String[] command = new String[checkSize("number of arguments", input.readInt(),
+                    MAX_ARGUMENTS)];
+            for (int j = 0; j < command.length; j++) {
+                byte[] bytes = new byte[checkSize("argument size", input.readInt(),
+                        MAX_ARGUMENT_SIZE)];
+                input.readFully(bytes);
+                command[j] = new String(bytes, UTF_8);
+            }
+            commands.add(command);
+        }
+        return new Batch(commands, parallelism);
+    }
+
+    /**
+     * Checks size read from stream.
+     * 
+     * @param name
+     *            name of size
+     * @param size
+     *            read size
+     * @param limit
+     *            maximal allowed size
+     * @return checked size
+     * @throws IOException
+     *             thrown when size is negative or exceeds limit
+     */
+    private static int checkSize(String name, int size, int limit) throws IOException {
+        if (size < 0 || size > limit)
+            throw new IOException("Invalid " + name + ": " + size);
+        return size;
+    }
+
+    /**
+     * Batch of commands read from stream.
+     */
+    static class Batch {
+        final List<String[]> commands;
+        final int parallelism;
+
+        /**
+         * Creates batch.
+         * 
+         * @param commands
+         *            commands to run
+         * @param parallelism
+         *            maximal number of commands run at once
+         */
+        Batch(List<String[]> commands, int parallelism) {
+            this.commands = commands;
+            this.parallelism = parallelism;
+        }
+    }
+}
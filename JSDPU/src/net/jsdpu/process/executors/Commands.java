@@ -21,8 +21,13 @@ import static java.util.regex.Pattern.*;
 import static net.jsdpu.logger.Logger.getLogger;
 import static net.jsdpu.logger.LoggerUtils.*;
 
+import java.io.File;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -93,6 +98,42 @@ public class Commands {
      */
     private static final String quoteReplacement = "?*:%";
 
+    /**
+     * Environment variable assignment preceding program name.
+     */
+    private static final Pattern assignmentPattern = compile("^([A-Za-z_]\\w*)=(.*)$");
+    /**
+     * Redirection operator of standard input, output or error.
+     */
+    private static final Pattern redirectionPattern = compile("^([012&])?(>>|>&|>|<)$");
+    /**
+     * Escaped dollar sign or variable in $NAME or ${NAME} form.
+     */
+    private static final Pattern variablePattern = compile("(" + s + "\\$)|\\$\\{([A-Za-z_]\\w*)\\}"
+            + "|\\$([A-Za-z_]\\w*)");
+
+    /**
+     * Default limit of arguments' size on POSIX systems (same as xargs' one).
+     */
+    private static final long posixArgumentsLimit = 128 * 1024;
+    /**
+     * Limit of command line's length on Windows systems (CreateProcess).
+     */
+    private static final long windowsArgumentsLimit = 32767;
+    /**
+     * Space that is always left free, so that limit is never reached exactly.
+     */
+    private static final long argumentsLimitMargin = 2048;
+    /**
+     * Charset used to measure arguments.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Limit calculated for current system (volatile, since it's calculated
+     * lazily by any thread).
+     */
+    private static volatile Long argumentsLimit;
+
     /**
      * Static class.
      */
@@ -120,33 +161,99 @@ public class Commands {
         logger.trace("Converting single console command for ProcessBuilder: " + command);
 
         List<String> preparedResult = new ArrayList<String>();
-        String tmp = null;
+        for (String token : splitConsoleCommand(command))
+            preparedResult.add(unwrapToken(token));
 
-        for (String currentlyCheckedString : command.split(" ")) {
-            if (tmp != null) {
-                tmp += " " + currentlyCheckedString;
-                if (endOfGroup.matcher(currentlyCheckedString).find()) {
-                    preparedResult.add(tmp.substring(0, tmp.length() - 1));
-                    tmp = null;
-                }
-            } else {
-                if (singleWrapped.matcher(currentlyCheckedString).find())
-                    preparedResult.add(currentlyCheckedString.substring(1,
-                            currentlyCheckedString.length() - 1));
-                else if (beginningOfGroup.matcher(currentlyCheckedString).find())
-                    tmp = currentlyCheckedString.substring(1);
-                else if (!currentlyCheckedString.isEmpty())
-                    preparedResult.add(currentlyCheckedString);
-            }
+        logger.detailedTrace("\tConverted single console command: " + preparedResult);
+        return preparedResult.toArray(new String[0]);
+    }
+
+    /**
+     * Converts single command in form passed into console to a ProcessBuilder,
+     * emulating the most common shell features.
+     * 
+     * <p>
+     * Recognized constructs are: leading <code>NAME=value</code> assignments,
+     * <code>$NAME</code> and <code>${NAME}</code> expansions (<code>\$</code>
+     * escapes dollar sign), as well as <code>&lt; file</code>,
+     * <code>&gt; file</code>, <code>&gt;&gt; file</code>,
+     * <code>2&gt; file</code>, <code>2&gt;&gt; file</code>,
+     * <code>&amp;&gt; file</code> and <code>2&gt;&amp;1</code> redirections.
+     * They are mapped onto ProcessBuilder's environment and redirects, so that
+     * no <code>sh -c</code> has to be run only to obtain them.
+     * </p>
+     * 
+     * <p>
+     * Redirection operators are recognized only outside of quotation marks,
+     * while variables are expanded in both cases. Variables are looked up in
+     * current environment.
+     * </p>
+     * 
+     * @see #convertSingleConsoleCommand(String)
+     * 
+     * @param command
+     *            command to convert
+     * @return ProcessBuilder prepared for execution of command
+     * @throws InvalidCommandException
+     *             thrown when there is error in shape of command
+     */
+    public static ProcessBuilder convertShellConsoleCommand(String command)
+            throws InvalidCommandException {
+        return convertShellConsoleCommand(command, System.getenv());
+    }
+
+    /**
+     * Converts single command in form passed into console to a ProcessBuilder,
+     * emulating the most common shell features.
+     * 
+     * @see #convertShellConsoleCommand(String)
+     * 
+     * @param command
+     *            command to convert
+     * @param environment
+     *            environment used for variables' expansion and passed into
+     *            ProcessBuilder
+     * @return ProcessBuilder prepared for execution of command
+     * @throws InvalidCommandException
+     *             thrown when there is error in shape of command
+     */
+    public static ProcessBuilder convertShellConsoleCommand(String command,
+            Map<String, String> environment) throws InvalidCommandException {
+        logger.trace("Converting shell console command for ProcessBuilder: " + command);
+
+        ProcessBuilder processBuilder = new ProcessBuilder();
+        Map<String, String> processEnvironment = processBuilder.environment();
+        processEnvironment.clear();
+        processEnvironment.putAll(environment);
+
+        List<String> preparedResult = new ArrayList<String>();
+        Iterator<ShellToken> tokens = splitShellCommand(command).iterator();
+
+        while (tokens.hasNext()) {
+            ShellToken token = tokens.next();
+
+            Matcher assignment = assignmentPattern.matcher(token.text);
+            if (token.operator) {
+                Matcher redirection = redirectionPattern.matcher(token.text);
+                redirection.matches();
+                redirect(processBuilder, redirection.group(1), redirection.group(2),
+                        redirectionTarget(tokens, command), command);
+            } else if (preparedResult.isEmpty() && assignment.matches()
+                    && assignment.end(1) < token.unquotedPrefix)
+                processEnvironment.put(assignment.group(1),
+                        expandVariables(assignment.group(2), processEnvironment));
+            else
+                preparedResult.add(expandVariables(token.text, processEnvironment));
         }
 
-        if (tmp != null) {
-            logger.error("Failed to convert console command - command invalid (exception thrown)");
-            throw new InvalidCommandException("There is error in \"" + command + "\" command");
+        if (preparedResult.isEmpty()) {
+            logger.error("Failed to convert shell command - no program (exception thrown)");
+            throw new InvalidCommandException("There is no program in \"" + command + "\" command");
         }
 
-        logger.detailedTrace("\tConverted single console command: " + preparedResult);
-        return preparedResult.toArray(new String[0]);
+        processBuilder.command(preparedResult);
+        logger.detailedTrace("\tConverted shell console command: " + preparedResult);
+        return processBuilder;
     }
 
     /**
@@ -234,6 +341,130 @@ public class Commands {
         return result;
     }
 
+    /**
+     * Splits command with a long list of variable arguments into several
+     * commands, so that none of them exceeds system's limit of command line
+     * size (ARG_MAX).
+     * 
+     * <p>
+     * Works like xargs - each returned command consists of passed command
+     * followed by as many arguments as it is possible. Returned commands are
+     * in format suitable for ExecutionQueueReader creation - when executed
+     * their results are read one after another.
+     * </p>
+     * 
+     * @see #getArgumentsLimit()
+     * 
+     * @param command
+     *            fixed part of command (program and its constant arguments)
+     * @param arguments
+     *            variable arguments that should be split between commands
+     * @return list of commands
+     * @throws InvalidCommandException
+     *             thrown when single argument cannot fit into command line
+     */
+    public static List<String[]> splitArguments(List<String> command, List<String> arguments)
+            throws InvalidCommandException {
+        return splitArguments(command, arguments, getArgumentsLimit());
+    }
+
+    /**
+     * Splits command with a long list of variable arguments into several
+     * commands, so that none of them exceeds given limit of command line size.
+     * 
+     * @see #splitArguments(List, List)
+     * 
+     * @param command
+     *            fixed part of command (program and its constant arguments)
+     * @param arguments
+     *            variable arguments that should be split between commands
+     * @param limit
+     *            maximal size of each command
+     * @return list of commands
+     * @throws InvalidCommandException
+     *             thrown when single argument cannot fit into command line
+     */
+    public static List<String[]> splitArguments(List<String> command, List<String> arguments,
+            long limit) throws InvalidCommandException {
+        logger.trace("Splitting " + arguments.size() + " arguments of " + command + " (limit: "
+                + limit + ")");
+        List<String[]> results = new ArrayList<String[]>();
+
+        long commandLength = 0;
+        for (String argument : command)
+            commandLength += argumentLength(argument);
+
+        List<String> currentCommand = new ArrayList<String>(command);
+        long currentLength = commandLength;
+        for (String argument : arguments) {
+            long argumentLength = argumentLength(argument);
+            if (commandLength + argumentLength > limit) {
+                logger.error("Failed to split arguments - argument too long (exception thrown)");
+                throw new InvalidCommandException("Argument \"" + argument
+                        + "\" doesn't fit into command line");
+            }
+
+            if (currentLength + argumentLength > limit) {
+                results.add(currentCommand.toArray(new String[0]));
+                currentCommand = new ArrayList<String>(command);
+                currentLength = commandLength;
+            }
+
+            currentCommand.add(argument);
+            currentLength += argumentLength;
+        }
+        results.add(currentCommand.toArray(new String[0]));
+
+        logger.detailedTrace("Split arguments into " + results.size() + " command(s)");
+        return results;
+    }
+
+    /**
+     * Returns limit of single command's size on current system.
+     * 
+     * <p>
+     * On Windows it is length of command line accepted by CreateProcess. On
+     * other systems it is xargs' default limit reduced by size of current
+     * environment, which shares ARG_MAX with arguments.
+     * </p>
+     * 
+     * @return limit of command's size
+     */
+    public static long getArgumentsLimit() {
+        Long limit = argumentsLimit;
+        if (limit == null) {
+            long available;
+            if (System.getProperty("os.name").toUpperCase().contains("WIN"))
+                available = windowsArgumentsLimit;
+            else {
+                available = posixArgumentsLimit;
+                for (Map.Entry<String, String> variable : System.getenv().entrySet())
+                    available -= argumentLength(variable.getKey() + "=" + variable.getValue());
+            }
+            limit = max(available - argumentsLimitMargin, argumentsLimitMargin);
+            argumentsLimit = limit;
+            logger.config("Arguments limit: " + limit);
+        }
+        return limit;
+    }
+
+    /**
+     * Calculates how much space argument takes in command line.
+     * 
+     * <p>
+     * Besides argument's encoded value it counts terminating character and
+     * pointer (POSIX), which also covers separator and quotation marks
+     * (Windows).
+     * </p>
+     * 
+     * @param argument
+     *            argument to measure
+     * @return argument's size
+     */
+    private static long argumentLength(String argument) {
+        return argument.getBytes(UTF_8).length + 1 + 8;
+    }
+
     /**
      * Escapes single argument.
      * 
@@ -324,6 +555,252 @@ public class Commands {
         return wrappedCommands;
     }
 
+    /**
+     * Splits console command into tokens, joining the ones inside of quotation
+     * marks together.
+     * 
+     * <p>
+     * Tokens that were in quotation marks are returned wrapped in them.
+     * </p>
+     * 
+     * @param command
+     *            command to split
+     * @return list of tokens
+     * @throws InvalidCommandException
+     *             thrown when there is error in shape of command
+     */
+    private static List<String> splitConsoleCommand(String command)
+            throws InvalidCommandException {
+        List<String> tokens = new ArrayList<String>();
+        String tmp = null;
+
+        for (String currentlyCheckedString : command.split(" ")) {
+            if (tmp != null) {
+                tmp += " " + currentlyCheckedString;
+                if (endOfGroup.matcher(currentlyCheckedString).find()) {
+                    tokens.add(tmp);
+                    tmp = null;
+                }
+            } else {
+                if (singleWrapped.matcher(currentlyCheckedString).find())
+                    tokens.add(currentlyCheckedString);
+                else if (beginningOfGroup.matcher(currentlyCheckedString).find())
+                    tmp = currentlyCheckedString;
+                else if (!currentlyCheckedString.isEmpty())
+                    tokens.add(currentlyCheckedString);
+            }
+        }
+
+        if (tmp != null) {
+            logger.error("Failed to convert console command - command invalid (exception thrown)");
+            throw new InvalidCommandException("There is error in \"" + command + "\" command");
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Splits shell command into tokens.
+     * 
+     * <p>
+     * Quotation marks are removed while tokenizing (<code>\"</code> escapes
+     * them), so that spaces inside of them never split token, while
+     * whitespaces, <code>&lt;</code> and <code>&gt;</code> outside of them
+     * always do. Redirection operators become separate tokens, together with
+     * descriptor if it directly precedes them.
+     * </p>
+     * 
+     * @param command
+     *            command to split
+     * @return list of tokens
+     * @throws InvalidCommandException
+     *             thrown when there is error in shape of command
+     */
+    private static List<ShellToken> splitShellCommand(String command)
+            throws InvalidCommandException {
+        List<ShellToken> tokens = new ArrayList<ShellToken>();
+        StringBuilder text = new StringBuilder();
+        boolean inToken = false;
+        boolean quoted = false;
+        int unquotedPrefix = -1;
+
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (c == '\\' && i + 1 < command.length() && command.charAt(i + 1) == '"') {
+                text.append('"');
+                inToken = true;
+                i++;
+            } else if (c == '"') {
+                if (unquotedPrefix < 0)
+                    unquotedPrefix = text.length();
+                quoted = !quoted;
+                inToken = true;
+            } else if (quoted || (c != ' ' && c != '\t' && c != '<' && c != '>')) {
+                text.append(c);
+                inToken = true;
+            } else {
+                String descriptor = "";
+                if (c != ' ' && c != '\t' && unquotedPrefix < 0 && text.length() == 1
+                        && "012&".indexOf(text.charAt(0)) >= 0)
+                    descriptor = text.toString();
+                else if (inToken)
+                    tokens.add(new ShellToken(text.toString(),
+                            unquotedPrefix < 0 ? text.length() : unquotedPrefix, false));
+                text.setLength(0);
+                inToken = false;
+                unquotedPrefix = -1;
+
+                if (c == ' ' || c == '\t')
+                    continue;
+                String operator = descriptor + c;
+                if (c == '>' && i + 1 < command.length()
+                        && (command.charAt(i + 1) == '>' || command.charAt(i + 1) == '&'))
+                    operator += command.charAt(++i);
+                tokens.add(new ShellToken(operator, 0, true));
+            }
+        }
+
+        if (quoted) {
+            logger.error("Failed to convert shell command - command invalid (exception thrown)");
+            throw new InvalidCommandException("There is error in \"" + command + "\" command");
+        }
+        if (inToken)
+            tokens.add(new ShellToken(text.toString(), unquotedPrefix < 0 ? text.length()
+                    : unquotedPrefix, false));
+
+        return tokens;
+    }
+
+    /**
+     * Removes quotation marks wrapping token (if there are any).
+     * 
+     * @param token
+     *            token to unwrap
+     * @return unwrapped token
+     */
+    private static String unwrapToken(String token) {
+        if (token.length() > 1 && token.startsWith("\"") && token.endsWith("\""))
+            return token.substring(1, token.length() - 1);
+        return token;
+    }
+
+    /**
+     * Expands $NAME and ${NAME} variables using passed environment.
+     * 
+     * <p>
+     * Undefined variables are expanded into empty strings.
+     * </p>
+     * 
+     * @param argument
+     *            argument to expand
+     * @param environment
+     *            environment used for lookup
+     * @return expanded argument
+     */
+    private static String expandVariables(String argument, Map<String, String> environment) {
+        if (!argument.contains("$"))
+            return argument;
+
+        Matcher matcher = variablePattern.matcher(argument);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String replacement;
+            if (matcher.group(1) != null)
+                replacement = "$";
+            else {
+                String name = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+                replacement = environment.containsKey(name) ? environment.get(name) : "";
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * Returns target of redirection - token following operator.
+     * 
+     * @param tokens
+     *            remaining tokens
+     * @param command
+     *            converted command
+     * @return redirection target
+     * @throws InvalidCommandException
+     *             thrown when there is no target
+     */
+    private static String redirectionTarget(Iterator<ShellToken> tokens, String command)
+            throws InvalidCommandException {
+        ShellToken target = tokens.hasNext() ? tokens.next() : null;
+        if (target == null || target.operator) {
+            logger.error("Failed to convert shell command - no redirection target"
+                    + " (exception thrown)");
+            throw new InvalidCommandException("Missing redirection target in \"" + command
+                    + "\" command");
+        }
+        return target.text;
+    }
+
+    /**
+     * Applies redirection to ProcessBuilder.
+     * 
+     * @param processBuilder
+     *            configured ProcessBuilder
+     * @param descriptor
+     *            redirected descriptor (null, "0", "1", "2" or "&amp;")
+     * @param operator
+     *            redirection operator
+     * @param target
+     *            redirection target
+     * @param command
+     *            converted command
+     * @throws InvalidCommandException
+     *             thrown when redirection cannot be mapped onto ProcessBuilder
+     */
+    private static void redirect(ProcessBuilder processBuilder, String descriptor,
+            String operator, String target, String command) throws InvalidCommandException {
+        if (">&".equals(operator)) {
+            if (!"2".equals(descriptor) || !"1".equals(target))
+                throw unsupportedRedirection(command);
+            processBuilder.redirectErrorStream(true);
+            return;
+        }
+
+        File file = new File(expandVariables(target, processBuilder.environment()));
+
+        if ("<".equals(operator)) {
+            if (descriptor != null && !"0".equals(descriptor))
+                throw unsupportedRedirection(command);
+            processBuilder.redirectInput(Redirect.from(file));
+        } else {
+            Redirect redirect = ">>".equals(operator) ? Redirect.appendTo(file) : Redirect.to(file);
+            if (descriptor == null || "1".equals(descriptor))
+                processBuilder.redirectOutput(redirect);
+            else if ("2".equals(descriptor))
+                processBuilder.redirectError(redirect);
+            else if ("&".equals(descriptor)) {
+                processBuilder.redirectOutput(redirect);
+                processBuilder.redirectErrorStream(true);
+            } else
+                throw unsupportedRedirection(command);
+        }
+        logger.detailedTrace("\tRedirection " + operator + " applied to " + file);
+    }
+
+    /**
+     * Creates exception for redirection that cannot be mapped onto
+     * ProcessBuilder.
+     * 
+     * @param command
+     *            converted command
+     * @return exception to throw
+     */
+    private static InvalidCommandException unsupportedRedirection(String command) {
+        logger.error("Failed to convert shell command - unsupported redirection"
+                + " (exception thrown)");
+        return new InvalidCommandException("Unsupported redirection in \"" + command
+                + "\" command");
+    }
+
     /**
      * Join arguments into one command (doesn't secure them!).
      * 
@@ -334,4 +811,28 @@ public class Commands {
     public static String joinArguments(String... arguments) {
         return argJoiner.join(arguments);
     }
+
+    /**
+     * Token of shell command.
+     */
+    private static final class ShellToken {
+        /**
+         * Token's text with quotation marks removed.
+         */
+        private final String text;
+        /**
+         * Length of token's beginning that was outside of quotation marks.
+         */
+        private final int unquotedPrefix;
+        /**
+         * Whether token is redirection operator.
+         */
+        private final boolean operator;
+
+        private ShellToken(String text, int unquotedPrefix, boolean operator) {
+            this.text = text;
+            this.unquotedPrefix = unquotedPrefix;
+            this.operator = operator;
+        }
+    }
 }
@@ -0,0 +1,317 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static net.jsdpu.process.executors.CommandFrames.readCommands;
+import static net.jsdpu.process.executors.MultiCaller.FAILED_TO_START;
+import static net.jsdpu.process.queue.QueueFrames.ERROR;
+import static net.jsdpu.process.queue.QueueFrames.OUTPUT;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import net.jsdpu.process.executors.CommandFrames.Batch;
+import net.jsdpu.process.queue.FrameEncoder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Long-lived helper run with the privilege elevation, that executes batches
+ * of commands sent to its standard input.
+ * 
+ * <p>
+ * Unlike MultiCaller it doesn't finish after running commands, so following
+ * elevated batches cost neither another authentication, nor another Java VM
+ * start up. Batches are passed with CommandFrames protocol, and results are
+ * returned as QueueFrames - each command's output is preceded by start frame,
+ * and followed by exit frame. Broker finishes when its input is closed -
+ * destroying processes of batch that is still run - or when it stays idle for
+ * longer than idle timeout.
+ * </p>
+ * 
+ * @see net.jsdpu.process.executors.CommandFrames
+ * @see net.jsdpu.process.executors.BrokerConnection
+ * @see net.jsdpu.process.executors.LinuxProcessExecutor#enableBroker(long)
+ */
+public class ElevatedBroker {
+    /**
+     * System property defining idle timeout in milliseconds.
+     */
+    static final String IDLE_TIMEOUT_PROPERTY = "net.jsdpu.broker.idleTimeout";
+
+    /**
+     * Default idle timeout.
+     */
+    static final long DEFAULT_IDLE_TIMEOUT = MINUTES.toMillis(5);
+
+    /**
+     * Factory of daemon threads used by broker.
+     */
+    private static final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("ElevatedBroker-%d").build();
+
+    private static final Object lock = new Object();
+    private static final Set<Process> processes = new HashSet<Process>();
+    private static long lastActivity = currentTimeMillis();
+    private static boolean busy = false;
+    private static boolean cancelled = false;
+
+    /**
+     * Static class.
+     */
+    private ElevatedBroker() {
+    }
+
+    /**
+     * Runs batches read from standard input, writing frames with their results
+     * to standard output.
+     * 
+     * <p>
+     * Batches are run in background, so that closing of input is noticed
+     * while batch is still run.
+     * </p>
+     * 
+     * @param args
+     *            ignored
+     */
+    public static void main(String[] args) {
+        final FrameEncoder encoder = new FrameEncoder(new FileOutputStream(FileDescriptor.out));
+        DataInputStream input = new DataInputStream(new BufferedInputStream(System.in));
+        // nothing else may write to the output, as it would break frames
+        System.setOut(System.err);
+
+        startWatchdog(Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+
+        ExecutorService batches = newSingleThreadExecutor(threadFactory);
+        try {
+            Batch batch;
+            while ((batch = readCommands(input)) != null) {
+                final Batch currentBatch = batch;
+                batches.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        synchronized (lock) {
+                            busy = true;
+                        }
+                        try {
+                            run(currentBatch, encoder);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        } finally {
+                            synchronized (lock) {
+                                busy = false;
+                                lastActivity = currentTimeMillis();
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        cancel();
+    }
+
+    /**
+     * Starts watchdog shutting down broker after idle timeout.
+     * 
+     * @param idleTimeout
+     *            idle timeout in milliseconds
+     */
+    private static void startWatchdog(final long idleTimeout) {
+        ScheduledExecutorService watchdog = newSingleThreadScheduledExecutor(threadFactory);
+        long period = Math.max(idleTimeout / 10, 10);
+        watchdog.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    if (!busy && currentTimeMillis() - lastActivity >= idleTimeout)
+                        System.exit(0);
+                }
+            }
+        }, period, period, MILLISECONDS);
+    }
+
+    /**
+     * Destroys processes of currently run batch, and prevents starting new
+     * ones.
+     */
+    private static void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            for (Process process : processes)
+                process.destroy();
+        }
+    }
+
+    /**
+     * Runs single batch.
+     * 
+     * <p>
+     * If commands are run one after another their output is streamed as it
+     * comes, otherwise output of each command is buffered and written at
+     * once, when it finishes.
+     * </p>
+     * 
+     * @param batch
+     *            batch to run
+     * @param encoder
+     *            encoder of frames
+     * @throws IOException
+     *             thrown when frames cannot be written
+     */
+    private static void run(Batch batch, final FrameEncoder encoder) throws IOException {
+        int threads = Math.max(1, Math.min(batch.parallelism, batch.commands.size()));
+        final boolean streamed = threads == 1;
+        ExecutorService executor = newFixedThreadPool(threads, threadFactory);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+
+        for (int i = 0; i < batch.commands.size(); i++) {
+            final int index = i;
+            final String[] command = batch.commands.get(i);
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    if (streamed)
+                        runStreamed(index, command, encoder);
+                    else
+                        runBuffered(index, command, encoder);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs command, streaming its output as frames.
+     * 
+     * @param index
+     *            index of command
+     * @param command
+     *            command to run
+     * @param encoder
+     *            encoder of frames
+     * @throws IOException
+     *             thrown when frames cannot be written
+     */
+    private static void runStreamed(int index, String[] command, FrameEncoder encoder)
+            throws IOException {
+        encoder.started(index);
+        int exitValue = run(command, encoder.getStream(index, OUTPUT),
+                encoder.getStream(index, ERROR));
+        encoder.exited(index, exitValue);
+    }
+
+    /**
+     * Runs command, writing its buffered output as frames once it finishes.
+     * 
+     * @param index
+     *            index of command
+     * @param command
+     *            command to run
+     * @param encoder
+     *            encoder of frames
+     * @throws IOException
+     *             thrown when frames cannot be written
+     */
+    private static void runBuffered(int index, String[] command, FrameEncoder encoder)
+            throws IOException {
+        ByteArrayOutputStream commandOutput = new ByteArrayOutputStream();
+        ByteArrayOutputStream commandError = new ByteArrayOutputStream();
+        int exitValue = run(command, commandOutput, commandError);
+
+        // encoder writes each frame holding its own lock
+        synchronized (encoder) {
+            encoder.started(index);
+            commandOutput.writeTo(encoder.getStream(index, OUTPUT));
+            commandError.writeTo(encoder.getStream(index, ERROR));
+            encoder.exited(index, exitValue);
+        }
+    }
+
+    /**
+     * Runs single command, unless batch was cancelled. Process is registered
+     * for the time it runs, so that it can be destroyed on cancellation.
+     * 
+     * @param command
+     *            command to run
+     * @param output
+     *            target of command's output stream
+     * @param error
+     *            target of command's error stream
+     * @return command's exit value
+     */
+    private static int run(String[] command, OutputStream output, OutputStream error) {
+        Process process = null;
+        IOException failure = null;
+        synchronized (lock) {
+            if (!cancelled)
+                try {
+                    process = new ProcessBuilder(command).start();
+                    processes.add(process);
+                } catch (IOException e) {
+                    failure = e;
+                }
+        }
+        if (process == null) {
+            if (failure != null)
+                failure.printStackTrace(new PrintStream(error, true));
+            return FAILED_TO_START;
+        }
+
+        try {
+            return MultiCaller.run(process, output, error);
+        } finally {
+            synchronized (lock) {
+                processes.remove(process);
+            }
+        }
+    }
+}
@@ -15,7 +15,12 @@
  */
 package net.jsdpu.process.executors;
 
+import static com.google.common.io.ByteStreams.toByteArray;
+import static java.util.Collections.unmodifiableSortedMap;
+import static java.util.regex.Pattern.compile;
+import static java.util.regex.Pattern.quote;
 import static net.jsdpu.logger.Logger.getLogger;
+import static net.jsdpu.process.executors.MultiCaller.*;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
@@ -23,7 +28,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.SequenceInputStream;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.jsdpu.logger.Logger;
 
@@ -33,18 +45,36 @@ import net.jsdpu.logger.Logger;
  * there are enqueued process'.
  * 
  * <p>
+ * Each process is treated as a single command, unless it is MultiCaller - in
+ * such case output and exit values are attributed to each of its commands
+ * basing on frames it prints.
+ * </p>
+ * 
+ * <p>
  * Should be created by ProcessExecutors.
  * </p>
  * 
  * @see net.jsdpu.process.executors.AbstractProcessExecutor
+ * @see net.jsdpu.process.executors.MultiCaller#FRAME_PREFIX
  */
 public class ExecutionQueueReader {
     private static final Logger logger = getLogger(ExecutionQueueReader.class);
 
+    /**
+     * MultiCaller's frame with name, command's index and optional exit value.
+     */
+    private static final Pattern framePattern = compile("^" + quote(FRAME_PREFIX) + "("
+            + BEGIN_FRAME + "|" + EXIT_FRAME + ") (\\d+)(?: (-?\\d+))?$");
+
     private Process currentProcess = null;
     private final ProcessQueue processQueue;
     private BufferedReader reader;
 
+    private final SortedMap<Integer, Integer> exitValues;
+    private int commandsOffset;
+    private int framedCommands;
+    private int currentCommand;
+
     /**
      * Creates instance of ExecutionQueueReader
      * 
@@ -59,6 +89,7 @@ public class ExecutionQueueReader {
      */
     ExecutionQueueReader(ProcessQueue processQueue) {
         this.processQueue = processQueue != null ? processQueue : new ProcessQueue();
+        this.exitValues = new TreeMap<Integer, Integer>();
     }
 
     /**
@@ -76,8 +107,10 @@ public class ExecutionQueueReader {
             if ((line = readNextLine()) != null)
                 return line;
 
-            if (processQueue.isEmpty())
+            if (processQueue.isEmpty()) {
+                finishCurrentProcess();
                 return null;
+            }
             loadNextReader();
         }
     }
@@ -119,7 +152,7 @@ public class ExecutionQueueReader {
 
         String line = null;
         try {
-            while ((line = reader.readLine()) != null && line.isEmpty())
+            while ((line = reader.readLine()) != null && (line.isEmpty() || readFrame(line)))
                 ;
         } catch (IOException e) {
         }
@@ -132,6 +165,11 @@ public class ExecutionQueueReader {
      * If reader is null or all of its input streams reached end/were closed
      * tries to obtain streams from next program.
      * 
+     * <p>
+     * If next program cannot be run, current command is set to its index and
+     * all processes remaining in queue are destroyed.
+     * </p>
+     * 
      * @throws InvalidCommandException
      *             thrown if attempt to run of any of commands happen to fail
      *             (e.g. program doesn't exists)
@@ -144,23 +182,102 @@ public class ExecutionQueueReader {
             } catch (IOException e) {
             }
 
+            finishCurrentProcess();
+
             try {
                 logger.trace("Obtaining next reader");
                 currentProcess = processQueue.getNextProcess();
                 Vector<InputStream> vector = new Vector<InputStream>();
                 vector.add(currentProcess.getInputStream());
                 vector.add(new ByteArrayInputStream(new byte[] { '\n' }));
-                vector.add(currentProcess.getErrorStream());
+                vector.add(new DrainedInputStream(currentProcess.getErrorStream()));
                 vector.add(new ByteArrayInputStream(new byte[] { '\n' }));
                 reader = new BufferedReader(new InputStreamReader(new SequenceInputStream(
                         vector.elements())));
             } catch (IOException e) {
                 logger.error("Failed to initiate next process (exception thrown)", e);
+                reader = null;
+                processQueue.destroy();
                 throw new InvalidCommandException(e.getMessage());
             }
         }
     }
 
+    /**
+     * Handles line if it is MultiCaller's frame.
+     * 
+     * @param line
+     *            read line
+     * @return true if line was a frame, false otherwise
+     */
+    private boolean readFrame(String line) {
+        Matcher matcher = framePattern.matcher(line);
+        if (!matcher.matches())
+            return false;
+
+        int command = Integer.parseInt(matcher.group(2));
+        framedCommands = Math.max(framedCommands, command + 1);
+        if (BEGIN_FRAME.equals(matcher.group(1)))
+            currentCommand = commandsOffset + command;
+        else if (matcher.group(3) != null)
+            exitValues.put(commandsOffset + command, Integer.valueOf(matcher.group(3)));
+
+        logger.detailedTrace("Read frame: " + line.substring(FRAME_PREFIX.length()));
+        return true;
+    }
+
+    /**
+     * Records exit value of current process (if it wasn't run through
+     * MultiCaller) and moves commands' offset past its commands.
+     */
+    private void finishCurrentProcess() {
+        if (currentProcess == null)
+            return;
+
+        if (framedCommands == 0)
+            try {
+                exitValues.put(commandsOffset, currentProcess.waitFor());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+        commandsOffset += Math.max(framedCommands, 1);
+        currentCommand = commandsOffset;
+        framedCommands = 0;
+        currentProcess = null;
+    }
+
+    /**
+     * Returns index of command, that produced line returned by the last call
+     * of getNextOutput().
+     * 
+     * <p>
+     * Commands are indexed in order they were passed into ProcessExecutor,
+     * commands run through MultiCaller (e.g. as root) are indexed separately.
+     * </p>
+     * 
+     * @return index of command
+     */
+    public int getCurrentCommand() {
+        return currentCommand;
+    }
+
+    /**
+     * Returns exit values of already finished commands.
+     * 
+     * <p>
+     * Exit values are indexed the same way as in getCurrentCommand(). Exit
+     * value of command is available after its whole output was read.
+     * </p>
+     * 
+     * @see #getCurrentCommand()
+     * 
+     * @return map of commands' indexes to their exit values
+     */
+    public SortedMap<Integer, Integer> getExitValues() {
+        return unmodifiableSortedMap(new TreeMap<Integer, Integer>(exitValues));
+    }
+
     /**
      * Kills current process.
      */
@@ -168,4 +285,75 @@ public class ExecutionQueueReader {
         if (currentProcess != null)
             currentProcess.destroy();
     }
+
+    /**
+     * Drains stream in background thread, and returns its content once it is
+     * read.
+     * 
+     * <p>
+     * Used for error stream, so that process filling it up is not blocked
+     * while its output stream is still read.
+     * </p>
+     */
+    private static class DrainedInputStream extends InputStream {
+        private final FutureTask<byte[]> content;
+        private InputStream buffer;
+
+        /**
+         * Starts draining stream.
+         * 
+         * @param source
+         *            drained stream
+         */
+        DrainedInputStream(final InputStream source) {
+            content = new FutureTask<byte[]>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    try {
+                        return toByteArray(source);
+                    } finally {
+                        source.close();
+                    }
+                }
+            });
+            Thread drainer = new Thread(content, "ExecutionQueueReader error drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return getBuffer().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return getBuffer().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer != null ? buffer.available() : 0;
+        }
+
+        /**
+         * Waits for drained content.
+         * 
+         * @return buffer with drained content
+         * @throws IOException
+         *             thrown if draining failed or was interrupted
+         */
+        private InputStream getBuffer() throws IOException {
+            if (buffer == null)
+                try {
+                    buffer = new ByteArrayInputStream(content.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+            return buffer;
+        }
+    }
 }
\ No newline at end of file
@@ -45,6 +45,28 @@ public interface IProcessExecutor {
      */
     public ExecutionQueueReader execute(List<String[]> commands) throws IOException;
 
+    /**
+     * Executes commands as a common user, running up to given number of them
+     * at once.
+     * 
+     * <p>
+     * Results are still read in order of commands, so it is suitable for
+     * running commands split by Commands.splitArguments(List, List).
+     * </p>
+     * 
+     * @see net.jsdpu.process.executors.Commands#splitArguments(List, List)
+     * 
+     * @param commands
+     *            commands to be executed
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return reader, which allows to read result of processing
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     */
+    public ExecutionQueueReader execute(List<String[]> commands, int parallelism)
+            throws IOException;
+
     /**
      * Executes commands as root.
      * 
@@ -65,6 +87,28 @@ public interface IProcessExecutor {
      */
     public ExecutionQueueReader executeRoot(List<String[]> commands) throws IOException;
 
+    /**
+     * Executes commands as root, running up to given number of them at once.
+     * 
+     * <p>
+     * Commands still share single privilege elevation, and results of each
+     * command are attributed to it by ExecutionQueueReader.
+     * </p>
+     * 
+     * @see #executeRoot(List)
+     * @see net.jsdpu.process.executors.ExecutionQueueReader#getCurrentCommand()
+     * 
+     * @param commands
+     *            commands to be executed
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return reader, which allows to read result of processing
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     */
+    public ExecutionQueueReader executeRoot(List<String[]> commands, int parallelism)
+            throws IOException;
+
     /**
      * Executes commands as a common user or root, depending on parameter.
      * 
@@ -86,4 +130,24 @@ public interface IProcessExecutor {
      *             thrown when error occurs in system dependent process
      */
     public ExecutionQueueReader execute(List<String[]> commands, boolean asRoot) throws IOException;
+
+    /**
+     * Executes commands as a common user or root, depending on parameter,
+     * running up to given number of them at once.
+     * 
+     * @see #execute(List, int)
+     * @see #executeRoot(List, int)
+     * 
+     * @param commands
+     *            commands to be executed
+     * @param asRoot
+     *            whether or not run commands as root
+     * @param parallelism
+     *            maximal number of commands run at once
+     * @return reader, which allows to read result of processing
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     */
+    public ExecutionQueueReader execute(List<String[]> commands, boolean asRoot, int parallelism)
+            throws IOException;
 }
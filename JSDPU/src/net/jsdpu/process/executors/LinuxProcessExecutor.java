@@ -15,12 +15,12 @@
  */
 package net.jsdpu.process.executors;
 
-import static java.util.Arrays.asList;
 import static net.jsdpu.logger.Logger.getLogger;
-import static net.jsdpu.process.executors.Commands.convertSingleCommand;
-import static net.jsdpu.process.executors.MultiCaller.prepareCommand;
+import static net.jsdpu.logger.LoggerUtils.listToString;
+import static net.jsdpu.process.elevated.ElevationBackends.getLinuxBackend;
+import static net.jsdpu.process.executors.MultiCaller.*;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 import net.jsdpu.logger.Logger;
@@ -28,18 +28,95 @@ import net.jsdpu.logger.Logger;
 /**
  * Implementation of AbstractProcessExecutor for Linux family systems.
  * 
+ * <p>
+ * Commands run as root are passed to MultiCaller through its standard input,
+ * so they don't need to be quoted and aren't limited by command line size.
+ * </p>
+ * 
+ * <p>
+ * Elevation is performed by ElevationBackend selected for current environment.
+ * If current process already runs as root, commands are run directly (as
+ * they are, same as MultiCaller would run them), without the privilege
+ * elevation.
+ * </p>
+ * 
+ * <p>
+ * When broker is enabled, commands run as root are passed to long-lived
+ * ElevatedBroker, so that user is asked for credentials only once as long as
+ * broker is not idle for longer than its timeout.
+ * </p>
+ * 
  * @see net.jsdpu.process.executors.AbstractProcessExecutor
+ * @see net.jsdpu.process.elevated.ElevationBackends#getLinuxBackend()
  */
 public class LinuxProcessExecutor extends AbstractProcessExecutor {
     private final static Logger logger = getLogger(LinuxProcessExecutor.class);
 
+    private BrokerConnection broker;
+
+    /**
+     * Enables running commands as root through ElevatedBroker.
+     * 
+     * @param idleTimeout
+     *            time in milliseconds after which idle broker finishes (it
+     *            will be started again on next execution)
+     */
+    public synchronized void enableBroker(long idleTimeout) {
+        logger.trace("Enabling broker with idle timeout: " + idleTimeout);
+        disableBroker();
+        broker = new BrokerConnection(getLinuxBackend().getElevationCommand(), idleTimeout);
+    }
+
+    /**
+     * Disables ElevatedBroker, finishing it if it's running.
+     */
+    public synchronized void disableBroker() {
+        if (broker != null) {
+            logger.trace("Disabling broker");
+            broker.close();
+            broker = null;
+        }
+    }
+
+    @Override
+    public synchronized ExecutionQueueReader executeRoot(List<String[]> commands,
+            int parallelism) throws IOException {
+        List<String> elevationCommand = getLinuxBackend().getElevationCommand();
+        if (elevationCommand.isEmpty()) {
+            logger.trace("Running commands as already privileged process: "
+                    + listToString(commands));
+            return executeCommands(commands, parallelism);
+        }
+        if (broker != null) {
+            logger.trace("Passing commands to broker: " + listToString(commands));
+            return new ExecutionQueueReader(new ProcessQueue(broker.execute(commands,
+                    parallelism)));
+        }
+        logger.trace("Passing commands to MultiCaller input: " + listToString(commands));
+        return new ExecutionQueueReader(new ProcessQueue(new ProcessBuilder(
+                prepareStdinCommand(elevationCommand)), prepareInput(commands, parallelism)));
+    }
+
     @Override
     protected List<String[]> rootCommand(List<String[]> commands) {
+        return rootCommand(commands, 1);
+    }
+
+    /**
+     * Prepares MultiCaller calls passing commands as arguments.
+     * 
+     * <p>
+     * Not used by {@link #executeRoot(List, int)}, which passes commands
+     * through MultiCaller's standard input, so that whole batch is run with
+     * one elevation regardless of its size.
+     * </p>
+     */
+    @Override
+    protected List<String[]> rootCommand(List<String[]> commands, int parallelism) {
         logger.trace("Preparing root command for: " + commands);
-        List<String> command = new ArrayList<String>();
-        command.add("pkexec");
-        command.addAll(asList(prepareCommand(commands)));
-        logger.detailedTrace("Root command: " + command);
-        return convertSingleCommand(command);
+        List<String[]> command = prepareCommands(getLinuxBackend().getElevationCommand(),
+                commands, parallelism);
+        logger.detailedTrace("Root command: " + listToString(command));
+        return command;
     }
 }
@@ -3,16 +3,33 @@ package net.jsdpu.process.executors;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.System.*;
-import static net.jsdpu.JavaSystemUtils.createCommandToRunMain;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static net.jsdpu.JavaSystemUtils.createCommandToRunHelper;
 import static net.jsdpu.logger.Logger.getLogger;
+import static net.jsdpu.logger.LoggerUtils.listToString;
 import static net.jsdpu.process.executors.Commands.*;
+import static net.jsdpu.process.executors.CommandFrames.readCommands;
+import static net.jsdpu.process.executors.CommandFrames.writeCommands;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 
 import net.jsdpu.logger.Logger;
+import net.jsdpu.process.executors.CommandFrames.Batch;
 
 import com.google.common.base.Function;
 
@@ -27,6 +44,65 @@ import com.google.common.base.Function;
 public class MultiCaller {
     private static final Logger logger = getLogger(MultiCaller.class);
 
+    /**
+     * Prefix of lines that MultiCaller uses for framing commands' output.
+     * 
+     * <p>
+     * Frames are:
+     * </p>
+     * 
+     * <ul>
+     * <li><code>BEGIN index</code> - written to both output and error stream
+     * before output of command with given index,</li>
+     * <li><code>EXIT index exitValue</code> - written to output stream after
+     * command with given index finished.</li>
+     * </ul>
+     * 
+     * @see net.jsdpu.process.executors.ExecutionQueueReader
+     */
+    static final String FRAME_PREFIX = "\u0000MultiCaller:";
+    /**
+     * Name of frame beginning command's output.
+     */
+    static final String BEGIN_FRAME = "BEGIN";
+    /**
+     * Name of frame with command's exit value.
+     */
+    static final String EXIT_FRAME = "EXIT";
+    /**
+     * Exit value reported for commands that couldn't be started.
+     */
+    static final int FAILED_TO_START = 127;
+
+    /**
+     * System property defining how many commands MultiCaller runs at once.
+     * 
+     * <p>
+     * By default commands are run one after another, and their output is
+     * streamed as it comes. With greater parallelism output of each command
+     * is buffered and written at once when it finishes, so it is still
+     * attributed to the command by frames.
+     * </p>
+     */
+    static final String PARALLELISM_PROPERTY = "net.jsdpu.multicaller.parallelism";
+
+    /**
+     * System property making MultiCaller read commands from standard input
+     * instead of arguments.
+     * 
+     * <p>
+     * Input is expected to be a batch written by {@link #prepareInput(List, int)}
+     * - commands are passed as they are, without quoting and parsing them, and
+     * their size is not limited by command line size.
+     * </p>
+     */
+    static final String STDIN_PROPERTY = "net.jsdpu.multicaller.stdin";
+
+    /**
+     * Size of buffer used for draining streams.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Generates command that will allow to run multiple commands through
      * MultiCaller front end.
@@ -42,15 +118,134 @@ public class MultiCaller {
      */
     static String[] prepareCommand(List<String[]> commands) {
         logger.trace("Preparation of MultiCaller run: " + commands);
-        List<String> arguments = newArrayList(transform(commands, new Function<String[], String>() {
+        String[] command = createCommandToRunHelper(MultiCaller.class, new ArrayList<String>(),
+                prepareArguments(commands));
+        logger.detailedTrace("MultiCaller command: " + command);
+        return command;
+    }
+
+    /**
+     * Generates commands that will allow to run multiple commands through
+     * MultiCaller front end, each of them fitting into command line size
+     * limit.
+     * 
+     * @see #prepareCommands(List, List, int)
+     * 
+     * @param prefix
+     *            command preceding each MultiCaller call (e.g. used for the
+     *            privilege elevation)
+     * @param commands
+     *            commands that should be run by MultiCaller
+     * @return list of commands for ProcessBulder/ProcessExecutor
+     */
+    static List<String[]> prepareCommands(List<String> prefix, List<String[]> commands) {
+        return prepareCommands(prefix, commands, 1);
+    }
+
+    /**
+     * Generates commands that will allow to run multiple commands through
+     * MultiCaller front end, each of them fitting into command line size
+     * limit.
+     * 
+     * <p>
+     * If all commands fit into one MultiCaller call result is the same as
+     * {@link #prepareCommand(List)} preceded by prefix. Otherwise commands are
+     * split between as few MultiCaller calls as possible.
+     * </p>
+     * 
+     * <p>
+     * Each call is run with its own prefix, so when prefix elevates privileges
+     * user is asked for credentials once per call. Executors able to pass
+     * commands through standard input should use
+     * {@link #prepareStdinCommand(List)} instead, which never has to split
+     * them.
+     * </p>
+     * 
+     * @see net.jsdpu.process.executors.Commands#splitArguments(List, List)
+     * 
+     * @param prefix
+     *            command preceding each MultiCaller call (e.g. used for the
+     *            privilege elevation)
+     * @param commands
+     *            commands that should be run by MultiCaller
+     * @param parallelism
+     *            maximal number of commands run by MultiCaller at once
+     * @return list of commands for ProcessBulder/ProcessExecutor
+     */
+    static List<String[]> prepareCommands(List<String> prefix, List<String[]> commands,
+            int parallelism) {
+        logger.trace("Preparation of MultiCaller runs: " + commands);
+        List<String> jvmArguments = new ArrayList<String>();
+        if (parallelism > 1)
+            jvmArguments.add("-D" + PARALLELISM_PROPERTY + "=" + parallelism);
+        List<String> command = new ArrayList<String>(prefix);
+        command.addAll(asList(createCommandToRunHelper(MultiCaller.class, jvmArguments,
+                new ArrayList<String>())));
+        try {
+            List<String[]> result = splitArguments(command, prepareArguments(commands));
+            logger.detailedTrace("MultiCaller commands: " + listToString(result));
+            return result;
+        } catch (InvalidCommandException e) {
+            logger.error("Failed to prepare MultiCaller runs (exception thrown)", e);
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * Generates command that will run MultiCaller reading commands from
+     * standard input.
+     * 
+     * @see #prepareInput(List, int)
+     * 
+     * @param prefix
+     *            command preceding MultiCaller call (e.g. used for the
+     *            privilege elevation)
+     * @return command for ProcessBulder/ProcessExecutor
+     */
+    static String[] prepareStdinCommand(List<String> prefix) {
+        List<String> command = new ArrayList<String>(prefix);
+        command.addAll(asList(createCommandToRunHelper(MultiCaller.class,
+                asList("-D" + STDIN_PROPERTY + "=true"), new ArrayList<String>())));
+        logger.detailedTrace("MultiCaller command: " + command);
+        return command.toArray(new String[command.size()]);
+    }
+
+    /**
+     * Generates input for MultiCaller run with
+     * {@link #prepareStdinCommand(List)}.
+     * 
+     * @param commands
+     *            commands that should be run by MultiCaller
+     * @param parallelism
+     *            maximal number of commands run by MultiCaller at once
+     * @return MultiCaller's input
+     */
+    static byte[] prepareInput(List<String[]> commands, int parallelism) {
+        logger.trace("Preparation of MultiCaller input: " + listToString(commands));
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        try {
+            writeCommands(new DataOutputStream(input), commands, parallelism);
+        } catch (IOException e) {
+            // cannot happen for ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return input.toByteArray();
+    }
+
+    /**
+     * Converts commands into MultiCaller's arguments.
+     * 
+     * @param commands
+     *            commands that should be run by MultiCaller
+     * @return arguments for MultiCaller
+     */
+    private static List<String> prepareArguments(List<String[]> commands) {
+        return newArrayList(transform(commands, new Function<String[], String>() {
             @Override
             public String apply(String[] subCommand) {
                 return wrapArgument(joinArguments(subCommand));
             }
         }));
-        String[] command = createCommandToRunMain(MultiCaller.class, arguments);
-        logger.detailedTrace("MultiCaller command: " + command);
-        return command;
     }
 
     /**
@@ -59,34 +254,235 @@ public class MultiCaller {
      * 
      * <p>
      * Results are redirected to output - both standard output and error output.
+     * Both streams of each command are drained concurrently and copied as raw
+     * bytes. Output of each command is preceded by begin frame on both
+     * streams, and followed by exit frame with command's exit value on
+     * standard output.
      * </p>
      * 
+     * <p>
+     * Commands are run one after another, unless greater parallelism is set
+     * with system property (or in standard input's batch).
+     * </p>
+     * 
+     * @see #FRAME_PREFIX
+     * @see #PARALLELISM_PROPERTY
+     * @see #STDIN_PROPERTY
+     * 
      * @param args
      *            commands to run
      */
     public static void main(String[] args) {
         try {
-            for (String[] command : convertMultipleConsoleCommands(args)) {
-                try {
-                    Process process = new ProcessBuilder(command).start();
-
-                    BufferedReader in = new BufferedReader(new InputStreamReader(
-                            process.getInputStream()));
-                    BufferedReader error = new BufferedReader(new InputStreamReader(
-                            process.getErrorStream()));
-
-                    String line;
-
-                    while ((line = in.readLine()) != null)
-                        out.println(line);
-                    while ((line = error.readLine()) != null)
-                        err.println(line);
-                } catch (IOException e) {
-                    e.printStackTrace();
+            List<String[]> commands;
+            int parallelism;
+            if (Boolean.getBoolean(STDIN_PROPERTY)) {
+                Batch batch = readCommands(new DataInputStream(new BufferedInputStream(in)));
+                if (batch == null)
+                    return;
+                commands = batch.commands;
+                parallelism = batch.parallelism;
+            } else {
+                commands = convertMultipleConsoleCommands(args);
+                parallelism = Integer.getInteger(PARALLELISM_PROPERTY, 1);
+            }
+
+            if (parallelism > 1 && commands.size() > 1)
+                runConcurrently(commands, parallelism);
+            else
+                for (int i = 0; i < commands.size(); i++)
+                    runSequentially(i, commands.get(i));
+        } catch (InvalidCommandException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs single command, streaming its framed output.
+     * 
+     * @param index
+     *            index of command
+     * @param command
+     *            command to run
+     */
+    private static void runSequentially(int index, String[] command) {
+        writeFrame(out, BEGIN_FRAME + " " + index);
+        writeFrame(err, BEGIN_FRAME + " " + index);
+        int exitValue = run(command, out, err);
+        writeFrame(out, EXIT_FRAME + " " + index + " " + exitValue);
+    }
+
+    /**
+     * Runs commands concurrently, writing framed output of each command at
+     * once, as soon as it finishes.
+     * 
+     * @param commands
+     *            commands to run
+     * @param parallelism
+     *            maximal number of commands run at once
+     */
+    private static void runConcurrently(List<String[]> commands, int parallelism) {
+        ExecutorService executor = newFixedThreadPool(Math.min(parallelism, commands.size()));
+        CompletionService<BufferedResult> completionService;
+        completionService = new ExecutorCompletionService<BufferedResult>(executor);
+
+        for (int i = 0; i < commands.size(); i++) {
+            final int index = i;
+            final String[] command = commands.get(i);
+            completionService.submit(new Callable<BufferedResult>() {
+                @Override
+                public BufferedResult call() {
+                    return new BufferedResult(index, command);
                 }
+            });
+        }
+
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                BufferedResult result = completionService.take().get();
+                writeFrame(out, BEGIN_FRAME + " " + result.index);
+                result.output.writeTo(out);
+                writeFrame(out, EXIT_FRAME + " " + result.index + " " + result.exitValue);
+                writeFrame(err, BEGIN_FRAME + " " + result.index);
+                result.error.writeTo(err);
+                err.flush();
             }
-        } catch (InvalidCommandException e) {
+        } catch (InterruptedException | ExecutionException | IOException e) {
+            e.printStackTrace();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs single command, draining its streams into passed ones.
+     * 
+     * @param command
+     *            command to run
+     * @param output
+     *            target of command's output stream
+     * @param error
+     *            target of command's error stream
+     * @return command's exit value
+     */
+    static int run(String[] command, OutputStream output, OutputStream error) {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).start();
+        } catch (IOException e) {
+            e.printStackTrace(new PrintStream(error, true));
+            return FAILED_TO_START;
+        }
+        return run(process, output, error);
+    }
+
+    /**
+     * Drains streams of already started process into passed ones, and waits
+     * until it finishes.
+     * 
+     * @param process
+     *            started process
+     * @param output
+     *            target of process' output stream
+     * @param error
+     *            target of process' error stream
+     * @return process' exit value
+     */
+    static int run(final Process process, OutputStream output, final OutputStream error) {
+        try {
+            process.getOutputStream().close();
+
+            Thread errorDrainer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain(process.getErrorStream(), error);
+                }
+            });
+            errorDrainer.start();
+            drain(process.getInputStream(), output);
+            errorDrainer.join();
+
+            return process.waitFor();
+        } catch (IOException e) {
+            e.printStackTrace(new PrintStream(error, true));
+            return FAILED_TO_START;
+        } catch (InterruptedException e) {
+            e.printStackTrace(new PrintStream(error, true));
+            return FAILED_TO_START;
+        }
+    }
+
+    /**
+     * Copies bytes from input to output until the end of input.
+     * 
+     * @param input
+     *            drained stream
+     * @param output
+     *            target stream
+     */
+    private static void drain(InputStream input, OutputStream output) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        try {
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+                output.flush();
+            }
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Writes frame into stream.
+     * 
+     * @param output
+     *            target stream
+     * @param frame
+     *            frame content
+     */
+    private static void writeFrame(PrintStream output, String frame) {
+        output.print(frame(frame));
+        output.flush();
+    }
+
+    /**
+     * Creates text of frame.
+     * 
+     * <p>
+     * Frame always starts in a new line, and ends with a new line.
+     * </p>
+     * 
+     * @param frame
+     *            frame content
+     * @return frame's text
+     */
+    static String frame(String frame) {
+        return "\n" + FRAME_PREFIX + frame + "\n";
+    }
+
+    /**
+     * Result of command run with buffered output.
+     */
+    private static class BufferedResult {
+        private final int index;
+        private final ByteArrayOutputStream output;
+        private final ByteArrayOutputStream error;
+        private final int exitValue;
+
+        /**
+         * Runs command and stores its result.
+         * 
+         * @param index
+         *            index of command
+         * @param command
+         *            command to run
+         */
+        BufferedResult(int index, String[] command) {
+            this.index = index;
+            this.output = new ByteArrayOutputStream();
+            this.error = new ByteArrayOutputStream();
+            this.exitValue = run(command, output, error);
+        }
+    }
 }
@@ -18,24 +18,42 @@ package net.jsdpu.process.executors;
 import static net.jsdpu.logger.Logger.getLogger;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import net.jsdpu.logger.Logger;
 
 /**
  * Queue starting and returning Process' sequentially.
+ * 
+ * <p>
+ * If parallelism is greater than 1, queue starts that many processes ahead,
+ * so that they run concurrently, while they are still returned in order.
+ * Failure to start process ahead is reported only when it is its turn to be
+ * returned.
+ * </p>
+ * 
+ * <p>
+ * Process can have input assigned, which is written into its standard input
+ * right after it's started.
+ * </p>
  */
 public class ProcessQueue {
     private static final Logger logger = getLogger(ProcessQueue.class);
 
     private final List<ProcessBuilder> processBuilders;
+    private final List<StartedProcess> startedProcesses;
+    private final Map<ProcessBuilder, byte[]> inputs;
+    private final int parallelism;
 
     /**
      * Creates queue instance.
      */
     ProcessQueue() {
-        this.processBuilders = new ArrayList<ProcessBuilder>();
+        this(new ArrayList<ProcessBuilder>());
     }
 
     /**
@@ -45,8 +63,48 @@ public class ProcessQueue {
      *            list of builders that will create queue
      */
     ProcessQueue(List<ProcessBuilder> processBuilders) {
+        this(processBuilders, 1);
+    }
+
+    /**
+     * Creates queue instance.
+     * 
+     * @param processBuilders
+     *            list of builders that will create queue
+     * @param parallelism
+     *            maximal number of processes running at once
+     */
+    ProcessQueue(List<ProcessBuilder> processBuilders, int parallelism) {
         this.processBuilders = processBuilders != null ? processBuilders
                 : new ArrayList<ProcessBuilder>();
+        this.startedProcesses = new ArrayList<StartedProcess>();
+        this.inputs = new IdentityHashMap<ProcessBuilder, byte[]>();
+        this.parallelism = parallelism > 1 ? parallelism : 1;
+    }
+
+    /**
+     * Creates queue instance for already started process.
+     * 
+     * @param process
+     *            process returned by queue
+     */
+    ProcessQueue(Process process) {
+        this(new ArrayList<ProcessBuilder>());
+        startedProcesses.add(new StartedProcess(process, null));
+    }
+
+    /**
+     * Creates queue instance for single process with input.
+     * 
+     * @param processBuilder
+     *            builder of process
+     * @param input
+     *            data written into process' standard input
+     */
+    ProcessQueue(ProcessBuilder processBuilder, byte[] input) {
+        this(new ArrayList<ProcessBuilder>());
+        processBuilders.add(processBuilder);
+        inputs.put(processBuilder, input);
     }
 
     /**
@@ -54,16 +112,68 @@ public class ProcessQueue {
      * 
      * @return next process if possible, null if none available
      * @throws IOException
-     *             thrown if attempt to run of any of commands happen to fail
-     *             (e.g. program doesn't exists)
+     *             thrown if attempt to run of next command failed (e.g.
+     *             program doesn't exists)
      */
     public Process getNextProcess() throws IOException {
-        if (processBuilders.isEmpty())
+        while (startedProcesses.size() < parallelism && !processBuilders.isEmpty()) {
+            ProcessBuilder processBuilder = processBuilders.remove(0);
+            byte[] input = inputs.remove(processBuilder);
+            logger.trace("Initialization of process: " + processBuilder.command());
+            try {
+                Process process = processBuilder.start();
+                if (input != null)
+                    writeInput(process, input);
+                startedProcesses.add(new StartedProcess(process, null));
+            } catch (IOException e) {
+                logger.debug("Failed to start process: " + processBuilder.command());
+                startedProcesses.add(new StartedProcess(null, e));
+            }
+        }
+        if (startedProcesses.isEmpty())
             return null;
-        logger.trace("Initialization of process: " + processBuilders.get(0).command());
-        Process process = processBuilders.get(0).start();
-        processBuilders.remove(0);
-        return process;
+
+        StartedProcess next = startedProcesses.remove(0);
+        if (next.failure != null)
+            throw next.failure;
+        return next.process;
+    }
+
+    /**
+     * Destroys already started processes and removes all remaining ones from
+     * queue.
+     */
+    public void destroy() {
+        logger.trace("Destroying process queue");
+        for (StartedProcess startedProcess : startedProcesses)
+            if (startedProcess.process != null)
+                startedProcess.process.destroy();
+        startedProcesses.clear();
+        processBuilders.clear();
+        inputs.clear();
+    }
+
+    /**
+     * Writes input into process and closes its standard input.
+     * 
+     * <p>
+     * If process finished before reading whole input, error is only logged -
+     * its reason should be visible in process' output.
+     * </p>
+     * 
+     * @param process
+     *            started process
+     * @param input
+     *            data to write
+     */
+    private void writeInput(Process process, byte[] input) {
+        OutputStream stdin = process.getOutputStream();
+        try {
+            stdin.write(input);
+            stdin.close();
+        } catch (IOException e) {
+            logger.error("Failed to write process input (exception thrown)", e);
+        }
     }
 
     /**
@@ -72,6 +182,19 @@ public class ProcessQueue {
      * @return true if queue is empty, false otherwise
      */
     public boolean isEmpty() {
-        return processBuilders.isEmpty();
+        return processBuilders.isEmpty() && startedProcesses.isEmpty();
+    }
+
+    /**
+     * Result of starting process - either process or failure.
+     */
+    private static class StartedProcess {
+        private final Process process;
+        private final IOException failure;
+
+        StartedProcess(Process process, IOException failure) {
+            this.process = process;
+            this.failure = failure;
+        }
     }
 }
@@ -20,11 +20,9 @@ import static java.lang.System.getProperty;
 import static java.util.Arrays.asList;
 import static net.jsdpu.logger.Logger.getLogger;
 import static net.jsdpu.logger.LoggerUtils.listToString;
-import static net.jsdpu.process.executors.Commands.convertSingleCommand;
-import static net.jsdpu.process.executors.MultiCaller.prepareCommand;
+import static net.jsdpu.process.executors.MultiCaller.prepareCommands;
 import static net.jsdpu.resources.Resources.*;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.jsdpu.logger.Logger;
@@ -49,15 +47,19 @@ public class WindowsProcessExecutor extends AbstractProcessExecutor {
 
     @Override
     protected List<String[]> rootCommand(List<String[]> commands) {
+        return rootCommand(commands, 1);
+    }
+
+    @Override
+    protected List<String[]> rootCommand(List<String[]> commands, int parallelism) {
         logger.trace("Preparing root command for: " + listToString(commands));
         if (isVistaOrLater()) {
             logger.config("Executing process with UAC handling (Vista+)");
             String uacHandlerPath = getUACHandlerPath();
-            List<String> command = new ArrayList<String>();
-            command.add(uacHandlerPath);
-            command.addAll(asList(prepareCommand(commands)));
-            logger.detailedTrace("Root command: " + command);
-            return convertSingleCommand(command);
+            List<String[]> command = prepareCommands(asList(uacHandlerPath), commands,
+                    parallelism);
+            logger.detailedTrace("Root command: " + listToString(command));
+            return command;
         }
         logger.config("Executing process without UAC handling (prior to Vista)");
         logger.detailedTrace("Root command: " + listToString(commands));
@@ -29,6 +29,8 @@
  * @see net.jsdpu.process.executors.WindowsProcessExecutor
  * @see net.jsdpu.process.executors.ExecutionQueueReader
  * @see net.jsdpu.process.executors.ProcessQueue
+ * @see net.jsdpu.process.executors.MultiCaller
+ * @see net.jsdpu.process.executors.ElevatedBroker
  * @see net.jsdpu.process.executors.InvalidCommandException
  */
-package net.jsdpu.process.executors;
\ No newline at end of file
+package net.jsdpu.process.executors;
\ No newline at end of file
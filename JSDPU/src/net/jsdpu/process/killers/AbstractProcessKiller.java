@@ -15,88 +15,240 @@
  */
 package net.jsdpu.process.killers;
 
-import static java.lang.Thread.sleep;
-import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.regex.Pattern.compile;
+import static net.jsdpu.JavaSystemUtils.getCurrentPid;
 import static net.jsdpu.logger.Logger.getLogger;
-import static net.jsdpu.process.killers.ProcessKillerConfiguration.*;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.jsdpu.logger.Logger;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
 /**
  * Provides common logic to all process killers.
+ * 
+ * <p>
+ * Processes are selected with ProcessMatcher - program names are turned into
+ * matchers with {@link ProcessMatcher#program(String)}.
+ * </p>
+ * 
+ * <p>
+ * Process table is listed once per attempt - the same snapshot is used for
+ * finding processes, resolving their PIDs and checking whether they are still
+ * running. When many programs are killed at once, all of them are found in
+ * one pass over one snapshot, signalled together and waited for together.
+ * </p>
+ * 
+ * <p>
+ * Processes are terminated according to KillPolicy. After each stage's signal
+ * killer waits for them with ProcessExitWaiter, so it moves on as soon as the
+ * last of them finishes.
+ * </p>
+ * 
+ * <p>
+ * Signal is delivered to all running processes with one system command for
+ * each level of process tree (split only if there are more than
+ * {@link #MAX_PIDS_PER_SIGNAL} processes), so killing hundreds of workers
+ * doesn't fork hundreds of processes.
+ * </p>
  */
 public abstract class AbstractProcessKiller implements IProcessKiller {
     private static final Logger logger = getLogger(AbstractProcessKiller.class);
 
+    /**
+     * Maximal number of PIDs passed to one system command - keeps command
+     * line within Windows' limits.
+     */
+    protected static final int MAX_PIDS_PER_SIGNAL = 1000;
+
+    private static final Pattern NUMBER = compile("\\d+");
+
+    private final ProcessTableSource processTableSource;
+
+    /**
+     * Creates killer.
+     * 
+     * @param processTableSource
+     *            source of process table's snapshots
+     */
+    protected AbstractProcessKiller(ProcessTableSource processTableSource) {
+        this.processTableSource = processTableSource;
+    }
+
     @Override
     public void killProcess(String programName) throws IOException, InterruptedException,
             ProcessKillerException {
-        logger.trace("Attempt to kill " + programName);
-        int attempts = 0;
+        KillReport report = killProcess(programName, ProcessKillerConfiguration.getPolicy());
+        if (!report.isSuccessful()) {
+            logger.error("Failed to kill " + programName + " (exception thrown)");
+            throw new ProcessKillerException("Couldn't kill process - " + report);
+        }
+    }
 
-        if (!isProgramRunning(programName))
-            return;
+    @Override
+    public KillReport killProcess(String programName, KillPolicy policy) throws IOException,
+            InterruptedException {
+        return killProcess(matching(programName), policy);
+    }
 
-        for (attempts = 0; attempts < HOW_MANY_ATTEMPTS_BEFORE_FAIL; attempts++) {
-            if (!askToDieGracefully(programName)) {
-                killAllResistants(programName);
-                return;
-            }
+    @Override
+    public KillReport killProcess(ProcessMatcher matcher, KillPolicy policy) throws IOException,
+            InterruptedException {
+        return killProcesses(Collections.singletonList(matcher), policy).get(matcher);
+    }
 
-            if (!isProgramRunning(programName)) {
-                logger.detailedTrace("Successfully killed all instances of " + programName);
-                return;
-            }
+    @Override
+    public Map<ProcessMatcher, KillReport> killProcesses(Collection<ProcessMatcher> matchers,
+            KillPolicy policy) throws IOException, InterruptedException {
+        logger.trace("Attempt to kill " + matchers + " with " + policy);
 
-            sleep(SECONDS.toMillis(HOW_MANY_SECONDS_BETWEEN_ATTEMPTS));
+        ProcessTable table = processTableSource.getProcessTable();
+        Map<ProcessMatcher, List<ProcessRecord>> found;
+        found = new LinkedHashMap<ProcessMatcher, List<ProcessRecord>>();
+        for (ProcessMatcher matcher : matchers)
+            found.put(matcher, new ArrayList<ProcessRecord>());
+        Set<ProcessRecord> allFound = new LinkedHashSet<ProcessRecord>();
+        for (ProcessRecord process : table.getProcesses()) {
+            if (process.isZombie())
+                continue;
+            for (Map.Entry<ProcessMatcher, List<ProcessRecord>> entry : found.entrySet())
+                if (entry.getKey().matches(process)) {
+                    entry.getValue().add(process);
+                    allFound.add(process);
+                }
         }
 
-        logger.error("Failed to kill " + programName + " (exception thrown)");
-        throw new ProcessKillerException("Couldn't kill process - " + HOW_MANY_ATTEMPTS_BEFORE_FAIL
-                + " attempts failed");
+        KillReport report = kill(table, new ArrayList<ProcessRecord>(allFound), policy);
+
+        Map<ProcessMatcher, KillReport> reports = new LinkedHashMap<ProcessMatcher, KillReport>();
+        for (Map.Entry<ProcessMatcher, List<ProcessRecord>> entry : found.entrySet()) {
+            KillReport targetReport = report.select(policy.getScope().select(table,
+                    entry.getValue()));
+            logger.detailedTrace("Killing " + entry.getKey() + " finished: " + targetReport);
+            reports.put(entry.getKey(), targetReport);
+        }
+        return reports;
     }
 
     /**
-     * Attempts to kill process "gracefully" - by sending TERM signal.
+     * Terminates processes found in snapshot, together with processes within
+     * policy's scope.
      * 
      * <p>
-     * Should make program pop
-     * "Do you want to save before exit?"/"Are you sure you want to quit?"
-     * dialog and then finish. Otherwise program should just die.
+     * Current process, its ancestors and descendants are never terminated
+     * (e.g. when they share found process' group). Processes are
+     * signalled bottom-up: at each stage descendants are signalled before
+     * their ancestors, with one command for each level of process tree.
      * </p>
      * 
-     * @param pid
-     *            PID of a program that should be killed
-     * @return true if succeed to kill process
+     * @param table
+     *            snapshot processes were found in
+     * @param found
+     *            processes found by killer
+     * @param policy
+     *            kill policy
+     * @return outcome for each terminated process
      * @throws IOException
      *             thrown when error occurs in system dependent process
      * @throws InterruptedException
      *             thrown when thread is interrupted, while waiting for system
      *             dependent process
      */
-    protected abstract boolean askToDieGracefully(String pid) throws IOException,
-            InterruptedException;
+    protected KillReport kill(ProcessTable table, List<ProcessRecord> found, KillPolicy policy)
+            throws IOException, InterruptedException {
+        List<ProcessRecord> processes = new ArrayList<ProcessRecord>(policy.getScope().select(
+                table, found));
+        ProcessRecord current = table.getProcess(getCurrentPid());
+        if (current != null) {
+            List<ProcessRecord> protectedProcesses = table.getAncestors(current);
+            protectedProcesses.add(current);
+            protectedProcesses.addAll(table.getDescendants(current));
+            if (processes.removeAll(protectedProcesses))
+                logger.warning("Current process, its ancestors and descendants won't be killed");
+        }
+        ProcessExitWaiter exitWaiter = new ProcessExitWaiter(processTableSource,
+                policy.getInitialCheckInterval(MILLISECONDS),
+                policy.getMaxCheckInterval(MILLISECONDS), MILLISECONDS);
+
+        Map<ProcessRecord, Signal> signals = new LinkedHashMap<ProcessRecord, Signal>();
+        Map<ProcessRecord, String> errors = new LinkedHashMap<ProcessRecord, String>();
+        List<ProcessRecord> running = processes;
+        for (KillPolicy.Stage stage : policy.getStages()) {
+            if (running.isEmpty())
+                break;
+
+            Map<Integer, String> failures = new LinkedHashMap<Integer, String>();
+            for (List<ProcessRecord> level : bottomUp(running)) {
+                List<Integer> pids = new ArrayList<Integer>(level.size());
+                for (ProcessRecord process : level) {
+                    pids.add(process.getPid());
+                    signals.put(process, stage.getSignal());
+                }
+                for (List<Integer> batch : Lists.partition(pids, MAX_PIDS_PER_SIGNAL))
+                    failures.putAll(sendSignal(stage.getSignal(), batch));
+            }
+            for (ProcessRecord process : running)
+                if (failures.containsKey(process.getPid()))
+                    errors.put(process, failures.get(process.getPid()));
+            processTableSource.invalidate();
+
+            running = exitWaiter.waitFor(running, stage.getDeadline(MILLISECONDS), MILLISECONDS);
+        }
+
+        return new KillReport(processes, signals, errors, running);
+    }
+
+    /**
+     * Returns source of process table's snapshots used by killer.
+     * 
+     * @return source of snapshots
+     */
+    public ProcessTableSource getProcessTableSource() {
+        return processTableSource;
+    }
 
     /**
-     * Kills process forcefully, if attempt to kill it gracefully failed.
+     * Checks whether program with given name is currently executed.
      * 
-     * @param pid
-     *            PID of a program that should be killed
+     * @param programName
+     *            program that should be checked
+     * @return true if program is running
      * @throws IOException
      *             thrown when error occurs in system dependent process
      * @throws InterruptedException
      *             thrown when thread is interrupted, while waiting for system
      *             dependent process
      */
-    protected abstract void killAllResistants(String pid) throws IOException, InterruptedException;
+    public boolean isProgramRunning(String programName) throws IOException,
+            InterruptedException {
+        return isProgramRunning(matching(programName));
+    }
 
     /**
-     * Checks whether program with given name is currently executed.
+     * Checks whether any process matched by matcher is currently executed.
      * 
-     * @param programName
-     *            program that should be checked
+     * @param matcher
+     *            matcher of processes
      * @return true if program is running
      * @throws IOException
      *             thrown when error occurs in system dependent process
@@ -104,6 +256,174 @@ public abstract class AbstractProcessKiller implements IProcessKiller {
      *             thrown when thread is interrupted, while waiting for system
      *             dependent process
      */
-    protected abstract boolean isProgramRunning(String programName) throws IOException,
-            InterruptedException;
+    public boolean isProgramRunning(ProcessMatcher matcher) throws IOException,
+            InterruptedException {
+        logger.detailedTrace("Obtaining information about running instances of " + matcher);
+        for (ProcessRecord process : processTableSource.getProcessTable().getProcesses())
+            if (!process.isZombie() && matcher.matches(process))
+                return true;
+        return false;
+    }
+
+    /**
+     * Splits processes into levels of process tree, so that descendants are
+     * signalled before their ancestors, and orphaned children cannot be
+     * restarted by their parents.
+     * 
+     * @param processes
+     *            processes to split
+     * @return levels - the deepest first
+     */
+    static List<List<ProcessRecord>> bottomUp(List<ProcessRecord> processes) {
+        Map<Integer, ProcessRecord> byPid = new HashMap<Integer, ProcessRecord>();
+        for (ProcessRecord process : processes)
+            byPid.put(process.getPid(), process);
+
+        TreeMap<Integer, List<ProcessRecord>> levels = new TreeMap<Integer, List<ProcessRecord>>(
+                Collections.reverseOrder());
+        for (ProcessRecord process : processes) {
+            int depth = 0;
+            ProcessRecord parent = byPid.get(process.getParentPid());
+            while (parent != null && depth < processes.size()) {
+                depth++;
+                parent = byPid.get(parent.getParentPid());
+            }
+            List<ProcessRecord> level = levels.get(depth);
+            if (level == null) {
+                level = new ArrayList<ProcessRecord>();
+                levels.put(depth, level);
+            }
+            level.add(process);
+        }
+        return new ArrayList<List<ProcessRecord>>(levels.values());
+    }
+
+    /**
+     * Sends signal to processes - preferably with one system command.
+     * 
+     * <p>
+     * TERM should make program pop
+     * "Do you want to save before exit?"/"Are you sure you want to quit?"
+     * dialog and then finish, while KILL should terminate it forcefully.
+     * </p>
+     * 
+     * @param signal
+     *            signal to send
+     * @param pids
+     *            PIDs of programs that should be killed
+     * @return errors of processes that signal couldn't be delivered to, by
+     *         their PIDs
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted, while waiting for system
+     *             dependent process
+     */
+    protected abstract Map<Integer, String> sendSignal(Signal signal, List<Integer> pids)
+            throws IOException, InterruptedException;
+
+    /**
+     * Runs command sending signal to many processes at once, and assigns
+     * error messages it prints to processes.
+     * 
+     * @param command
+     *            command to run
+     * @param pids
+     *            PIDs passed to command
+     * @param nullDevice
+     *            file that command's standard output is redirected to
+     * @return errors by PIDs
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted, while waiting for system
+     *             dependent process
+     * @see #parseSignalErrors(List, Collection, int)
+     */
+    protected Map<Integer, String> runSignalCommand(List<String> command,
+            Collection<Integer> pids, File nullDevice) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectOutput(Redirect.to(nullDevice))
+                .start();
+        process.getOutputStream().close();
+
+        List<String> lines = new ArrayList<String>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                process.getErrorStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                if (!line.trim().isEmpty())
+                    lines.add(line.trim());
+        }
+
+        Map<Integer, String> errors = parseSignalErrors(lines, pids, process.waitFor());
+        // processes often finish on their own before signal reaches them (e.g.
+        // parents after their children), so that alone isn't an error
+        if (!errors.isEmpty())
+            logger.debug("Failed to deliver signal to " + errors.size() + " processes: "
+                    + errors.values());
+        return errors;
+    }
+
+    /**
+     * Assigns error messages to processes. Each line that contains one of
+     * PIDs is treated as the error of that process. If command failed but
+     * none of lines contains PID, all processes get all lines as their error.
+     * 
+     * @param lines
+     *            command's error output
+     * @param pids
+     *            PIDs passed to command
+     * @param exitCode
+     *            command's exit code
+     * @return errors by PIDs
+     */
+    static Map<Integer, String> parseSignalErrors(List<String> lines, Collection<Integer> pids,
+            int exitCode) {
+        Set<Integer> requested = new HashSet<Integer>(pids);
+        Map<Integer, String> errors = new LinkedHashMap<Integer, String>();
+        List<String> unassigned = new ArrayList<String>();
+        for (String line : lines) {
+            boolean assigned = false;
+            Matcher matcher = NUMBER.matcher(line);
+            while (matcher.find()) {
+                Integer pid = parsePid(matcher.group());
+                if (pid != null && requested.contains(pid)) {
+                    errors.put(pid, line);
+                    assigned = true;
+                }
+            }
+            if (!assigned)
+                unassigned.add(line);
+        }
+
+        if (exitCode != 0 && errors.isEmpty()) {
+            String message = unassigned.isEmpty() ? "Command failed with exit code " + exitCode
+                    : Joiner.on("; ").join(unassigned);
+            for (Integer pid : pids)
+                errors.put(pid, message);
+        }
+        return errors;
+    }
+
+    private static Integer parsePid(String number) {
+        try {
+            return Integer.valueOf(number);
+        } catch (NumberFormatException e) {
+            // too long to be PID
+            return null;
+        }
+    }
+
+    /**
+     * Returns matcher selecting processes running program with given name.
+     * 
+     * @param programName
+     *            name of program
+     * @return matcher
+     * @see ProcessMatcher#program(String)
+     */
+    protected ProcessMatcher matching(String programName) {
+        return ProcessMatcher.program(programName);
+    }
+
 }
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProcessTableSource reusing snapshot for a short time.
+ * 
+ * <p>
+ * Intended for callers that poll process table (e.g. check whether program is
+ * running in a loop) - all calls made within given time share one snapshot.
+ * Killers invalidate it after sending signals, so that they never see
+ * processes they've already killed.
+ * </p>
+ */
+public class CachedProcessTableSource implements ProcessTableSource {
+    private final ProcessTableSource source;
+    private final long maxAge;
+    private ProcessTable cached;
+
+    /**
+     * Creates cached source.
+     * 
+     * @param source
+     *            source of snapshots
+     * @param maxAge
+     *            for how long snapshot can be reused
+     * @param unit
+     *            unit of maxAge
+     */
+    public CachedProcessTableSource(ProcessTableSource source, long maxAge, TimeUnit unit) {
+        this.source = source;
+        this.maxAge = unit.toNanos(maxAge);
+    }
+
+    @Override
+    public synchronized ProcessTable getProcessTable() throws IOException, InterruptedException {
+        if (cached == null || cached.getAge(TimeUnit.NANOSECONDS) > maxAge)
+            cached = source.getProcessTable();
+        return cached;
+    }
+
+    @Override
+    public List<ProcessRecord> getRunning(Collection<ProcessRecord> processes)
+            throws IOException, InterruptedException {
+        return source.getRunning(processes);
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        cached = null;
+        source.invalidate();
+    }
+}
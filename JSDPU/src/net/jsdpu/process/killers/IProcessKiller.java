@@ -16,6 +16,8 @@
 package net.jsdpu.process.killers;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Common interface for classes responsible for killing processes in their
@@ -34,7 +36,11 @@ import java.io.IOException;
  */
 public interface IProcessKiller {
     /**
-     * Attempt to shutdown process with given program name.
+     * Attempt to shutdown process with given program name using policy built
+     * from ProcessKillerConfiguration's settings - repeated TERM followed by
+     * KILL.
+     * 
+     * @see ProcessKillerConfiguration
      * 
      * @param programName
      *            name of program that should be killed
@@ -48,4 +54,62 @@ public interface IProcessKiller {
      */
     public void killProcess(String programName) throws IOException, InterruptedException,
             ProcessKillerException;
+
+    /**
+     * Terminates all processes running program with given name according to
+     * policy.
+     * 
+     * @param programName
+     *            name of program that should be killed
+     * @param policy
+     *            signals to send and deadlines to wait for processes
+     * @return outcome for each found process
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted during waiting for system
+     *             dependent process to finish
+     */
+    public KillReport killProcess(String programName, KillPolicy policy) throws IOException,
+            InterruptedException;
+
+    /**
+     * Terminates all processes matched by matcher according to policy.
+     * 
+     * @param matcher
+     *            matcher of processes that should be killed
+     * @param policy
+     *            signals to send and deadlines to wait for processes
+     * @return outcome for each found process
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted during waiting for system
+     *             dependent process to finish
+     */
+    public KillReport killProcess(ProcessMatcher matcher, KillPolicy policy) throws IOException,
+            InterruptedException;
+
+    /**
+     * Terminates processes matched by any of matchers according to policy.
+     * 
+     * <p>
+     * All processes are found in one snapshot of process table, signalled
+     * together and waited for together - which is much faster than killing
+     * programs one after another.
+     * </p>
+     * 
+     * @param matchers
+     *            matchers of processes that should be killed
+     * @param policy
+     *            signals to send and deadlines to wait for processes
+     * @return report for each matcher - in matchers' order
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted during waiting for system
+     *             dependent process to finish
+     */
+    public Map<ProcessMatcher, KillReport> killProcesses(Collection<ProcessMatcher> matchers,
+            KillPolicy policy) throws IOException, InterruptedException;
 }
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.jsdpu.process.killers.ProcessExitWaiter.INITIAL_MILLISECONDS_BETWEEN_CHECKS;
+import static net.jsdpu.process.killers.ProcessExitWaiter.MAX_MILLISECONDS_BETWEEN_CHECKS;
+import static net.jsdpu.process.killers.Signal.INT;
+import static net.jsdpu.process.killers.Signal.KILL;
+import static net.jsdpu.process.killers.Signal.TERM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how killer should terminate processes.
+ * 
+ * <p>
+ * Policy consists of ordered stages. At each stage killer sends stage's
+ * signal to all processes that are still running, and waits up to stage's
+ * deadline for them to finish. Next stage starts as soon as all processes
+ * finish or deadline passes. Processes running after the last stage are
+ * reported as survivors.
+ * </p>
+ * 
+ * <p>
+ * Processes are terminated within policy's KillScope - e.g. together with all
+ * their descendants.
+ * </p>
+ * 
+ * <p>
+ * Policy is immutable - each method returns new instance, so one policy can
+ * be safely shared between threads.
+ * </p>
+ * 
+ * <pre>
+ * KillPolicy policy = KillPolicy.signal(Signal.TERM, 2, TimeUnit.SECONDS).then(Signal.KILL, 1,
+ *         TimeUnit.SECONDS);
+ * </pre>
+ * 
+ * @see net.jsdpu.process.killers.IProcessKiller#killProcess(String, KillPolicy)
+ */
+public final class KillPolicy {
+    /**
+     * Default policy: TERM with 10 seconds deadline, INT with 5 seconds
+     * deadline, KILL with 5 seconds deadline.
+     */
+    public static final KillPolicy DEFAULT = signal(TERM, 10, SECONDS).then(INT, 5, SECONDS)
+            .then(KILL, 5, SECONDS);
+
+    private final List<Stage> stages;
+    private final KillScope scope;
+    private final long initialCheckInterval;
+    private final long maxCheckInterval;
+
+    private KillPolicy(List<Stage> stages, KillScope scope, long initialCheckInterval,
+            long maxCheckInterval) {
+        this.stages = Collections.unmodifiableList(stages);
+        this.scope = scope;
+        this.initialCheckInterval = initialCheckInterval;
+        this.maxCheckInterval = maxCheckInterval;
+    }
+
+    /**
+     * Creates policy with one stage.
+     * 
+     * @param signal
+     *            signal sent at stage
+     * @param deadline
+     *            how long to wait for processes to finish
+     * @param unit
+     *            unit of deadline
+     * @return policy
+     */
+    public static KillPolicy signal(Signal signal, long deadline, TimeUnit unit) {
+        return new KillPolicy(new ArrayList<Stage>(), KillScope.PROCESS,
+                INITIAL_MILLISECONDS_BETWEEN_CHECKS, MAX_MILLISECONDS_BETWEEN_CHECKS).then(signal,
+                deadline, unit);
+    }
+
+    /**
+     * Returns policy with additional stage at the end.
+     * 
+     * @param signal
+     *            signal sent at stage
+     * @param deadline
+     *            how long to wait for processes to finish
+     * @param unit
+     *            unit of deadline
+     * @return new policy
+     */
+    public KillPolicy then(Signal signal, long deadline, TimeUnit unit) {
+        if (signal == null)
+            throw new IllegalArgumentException("Signal must be defined");
+        if (deadline < 0)
+            throw new IllegalArgumentException("Deadline cannot be negative");
+        List<Stage> newStages = new ArrayList<Stage>(stages);
+        newStages.add(new Stage(signal, unit.toMillis(deadline)));
+        return new KillPolicy(newStages, scope, initialCheckInterval, maxCheckInterval);
+    }
+
+    /**
+     * Returns policy with changed scope. Default scope is
+     * {@link KillScope#PROCESS}.
+     * 
+     * @param scope
+     *            which processes should be terminated together with found ones
+     * @return new policy
+     */
+    public KillPolicy withScope(KillScope scope) {
+        if (scope == null)
+            throw new IllegalArgumentException("Scope must be defined");
+        return new KillPolicy(new ArrayList<Stage>(stages), scope, initialCheckInterval,
+                maxCheckInterval);
+    }
+
+    /**
+     * Returns policy with changed intervals between checks whether processes
+     * have finished. Intervals start with initial one and are doubled up to
+     * the maximal one.
+     * 
+     * @param initial
+     *            first interval
+     * @param max
+     *            maximal interval
+     * @param unit
+     *            unit of intervals
+     * @return new policy
+     */
+    public KillPolicy withCheckIntervals(long initial, long max, TimeUnit unit) {
+        if (initial <= 0 || max < initial)
+            throw new IllegalArgumentException("Intervals must be positive and initial <= max");
+        return new KillPolicy(new ArrayList<Stage>(stages), scope, unit.toMillis(initial),
+                unit.toMillis(max));
+    }
+
+    /**
+     * Returns stages in order of execution.
+     * 
+     * @return unmodifiable list of stages
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Returns which processes are terminated together with found ones.
+     * 
+     * @return scope
+     */
+    public KillScope getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns first interval between checks whether processes have finished.
+     * 
+     * @param unit
+     *            unit of result
+     * @return interval
+     */
+    public long getInitialCheckInterval(TimeUnit unit) {
+        return unit.convert(initialCheckInterval, MILLISECONDS);
+    }
+
+    /**
+     * Returns maximal interval between checks whether processes have
+     * finished.
+     * 
+     * @param unit
+     *            unit of result
+     * @return interval
+     */
+    public long getMaxCheckInterval(TimeUnit unit) {
+        return unit.convert(maxCheckInterval, MILLISECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "KillPolicy" + stages + " " + scope;
+    }
+
+    /**
+     * Single stage of KillPolicy.
+     */
+    public static final class Stage {
+        private final Signal signal;
+        private final long deadline;
+
+        private Stage(Signal signal, long deadline) {
+            this.signal = signal;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Returns signal sent at this stage.
+         * 
+         * @return signal
+         */
+        public Signal getSignal() {
+            return signal;
+        }
+
+        /**
+         * Returns how long killer waits for processes to finish after sending
+         * signal.
+         * 
+         * @param unit
+         *            unit of result
+         * @return deadline
+         */
+        public long getDeadline(TimeUnit unit) {
+            return unit.convert(deadline, MILLISECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return signal + " " + deadline + "ms";
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of killing processes with KillPolicy.
+ * 
+ * <p>
+ * For each process found by killer report contains its outcome, the last
+ * signal it was sent, and - for survivors - the last error that occurred
+ * while delivering signal to it.
+ * </p>
+ */
+public final class KillReport {
+    /**
+     * Outcome of killing single process.
+     */
+    public enum Outcome {
+        /**
+         * Process finished after signal other than KILL.
+         */
+        EXITED,
+
+        /**
+         * Process finished only after KILL signal.
+         */
+        KILLED,
+
+        /**
+         * Process was still running after the last stage of policy.
+         */
+        SURVIVED;
+    }
+
+    private final Map<ProcessRecord, Outcome> outcomes;
+    private final Map<ProcessRecord, Signal> signals;
+    private final Map<ProcessRecord, String> errors;
+
+    /**
+     * Creates report.
+     * 
+     * @param processes
+     *            all processes found by killer
+     * @param signals
+     *            the last signal sent to each process
+     * @param errors
+     *            the last error of signal delivery to each process - kept only
+     *            for survivors
+     * @param survivors
+     *            processes running after the last stage
+     */
+    KillReport(Collection<ProcessRecord> processes, Map<ProcessRecord, Signal> signals,
+            Map<ProcessRecord, String> errors, Collection<ProcessRecord> survivors) {
+        outcomes = new LinkedHashMap<ProcessRecord, Outcome>();
+        for (ProcessRecord process : processes)
+            outcomes.put(process, survivors.contains(process) ? Outcome.SURVIVED
+                    : signals.get(process) == Signal.KILL ? Outcome.KILLED : Outcome.EXITED);
+        this.signals = new LinkedHashMap<ProcessRecord, Signal>();
+        for (ProcessRecord process : processes)
+            if (signals.containsKey(process))
+                this.signals.put(process, signals.get(process));
+        this.errors = new LinkedHashMap<ProcessRecord, String>();
+        for (ProcessRecord survivor : survivors)
+            if (errors.containsKey(survivor))
+                this.errors.put(survivor, errors.get(survivor));
+    }
+
+    /**
+     * Returns part of report concerning given processes.
+     * 
+     * @param processes
+     *            processes to select - the ones that aren't in report are
+     *            ignored
+     * @return new report
+     */
+    KillReport select(Collection<ProcessRecord> processes) {
+        List<ProcessRecord> selected = new ArrayList<ProcessRecord>();
+        List<ProcessRecord> survivors = new ArrayList<ProcessRecord>();
+        for (ProcessRecord process : processes)
+            if (outcomes.containsKey(process)) {
+                selected.add(process);
+                if (outcomes.get(process) == Outcome.SURVIVED)
+                    survivors.add(process);
+            }
+        return new KillReport(selected, signals, errors, survivors);
+    }
+
+    /**
+     * Returns all processes found by killer.
+     * 
+     * @return processes
+     */
+    public List<ProcessRecord> getProcesses() {
+        return Collections.unmodifiableList(new ArrayList<ProcessRecord>(outcomes.keySet()));
+    }
+
+    /**
+     * Returns outcome for given process.
+     * 
+     * @param process
+     *            process from report
+     * @return outcome, or null if process isn't in report
+     */
+    public Outcome getOutcome(ProcessRecord process) {
+        return outcomes.get(process);
+    }
+
+    /**
+     * Returns the last signal sent to given process.
+     * 
+     * @param process
+     *            process from report
+     * @return signal, or null if no signal was sent
+     */
+    public Signal getSignal(ProcessRecord process) {
+        return signals.get(process);
+    }
+
+    /**
+     * Returns the last error that occurred while delivering signal to given
+     * surviving process (e.g. lack of permissions).
+     * 
+     * @param process
+     *            process from report
+     * @return error message, or null if process finished or all signals were
+     *         delivered
+     */
+    public String getError(ProcessRecord process) {
+        return errors.get(process);
+    }
+
+    /**
+     * Returns processes that are still running.
+     * 
+     * @return survivors
+     */
+    public List<ProcessRecord> getSurvivors() {
+        List<ProcessRecord> survivors = new ArrayList<ProcessRecord>();
+        for (Map.Entry<ProcessRecord, Outcome> entry : outcomes.entrySet())
+            if (entry.getValue() == Outcome.SURVIVED)
+                survivors.add(entry.getKey());
+        return survivors;
+    }
+
+    /**
+     * Whether all processes were terminated.
+     * 
+     * @return true if there are no survivors
+     */
+    public boolean isSuccessful() {
+        return !outcomes.containsValue(Outcome.SURVIVED);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("KillReport[");
+        boolean first = true;
+        for (Map.Entry<ProcessRecord, Outcome> entry : outcomes.entrySet()) {
+            if (!first)
+                builder.append(", ");
+            first = false;
+            builder.append(entry.getKey().getPid()).append(": ").append(entry.getValue());
+            Signal signal = signals.get(entry.getKey());
+            if (signal != null)
+                builder.append(" (").append(signal).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Defines which processes are terminated together with the ones found by
+ * killer.
+ * 
+ * <p>
+ * Wider scopes help when program leaves helper processes behind - orphaned
+ * children would keep running and hold files that the updater needs to
+ * replace.
+ * </p>
+ * 
+ * @see net.jsdpu.process.killers.KillPolicy#withScope(KillScope)
+ */
+public enum KillScope {
+    /**
+     * Only found processes.
+     */
+    PROCESS {
+        @Override
+        void select(ProcessTable table, ProcessRecord process, Set<ProcessRecord> selected) {
+            selected.add(process);
+        }
+    },
+
+    /**
+     * Found processes with all their descendants.
+     */
+    TREE {
+        @Override
+        void select(ProcessTable table, ProcessRecord process, Set<ProcessRecord> selected) {
+            selected.add(process);
+            selected.addAll(table.getDescendants(process));
+        }
+    },
+
+    /**
+     * All processes from found processes' groups. On systems without
+     * process groups it works as {@link #PROCESS}.
+     */
+    GROUP {
+        @Override
+        void select(ProcessTable table, ProcessRecord process, Set<ProcessRecord> selected) {
+            selected.add(process);
+            if (process.getProcessGroup() > 0)
+                selected.addAll(table.getProcessGroup(process.getProcessGroup()));
+        }
+    },
+
+    /**
+     * All processes from found processes' sessions. On systems without
+     * sessions it works as {@link #PROCESS}.
+     */
+    SESSION {
+        @Override
+        void select(ProcessTable table, ProcessRecord process, Set<ProcessRecord> selected) {
+            selected.add(process);
+            if (process.getSession() > 0)
+                selected.addAll(table.getSession(process.getSession()));
+        }
+    };
+
+    /**
+     * Returns found processes together with the ones within scope.
+     * 
+     * @param table
+     *            snapshot processes were found in
+     * @param processes
+     *            found processes
+     * @return processes to terminate
+     */
+    public List<ProcessRecord> select(ProcessTable table, Collection<ProcessRecord> processes) {
+        Set<ProcessRecord> selected = new LinkedHashSet<ProcessRecord>();
+        for (ProcessRecord process : processes)
+            select(table, process, selected);
+        return ImmutableList.copyOf(selected);
+    }
+
+    abstract void select(ProcessTable table, ProcessRecord process, Set<ProcessRecord> selected);
+}
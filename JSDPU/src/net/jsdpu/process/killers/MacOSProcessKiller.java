@@ -18,6 +18,8 @@ package net.jsdpu.process.killers;
 import static net.jsdpu.logger.Logger.getLogger;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
 
 import net.jsdpu.logger.Logger;
 
@@ -37,7 +39,49 @@ public class MacOSProcessKiller implements IProcessKiller {
      */
     @Override
     public void killProcess(String programName) throws IOException, InterruptedException {
-        logger.error("MacOSProcessKiller is not yet implemented! (exceptio thrown)");
-        throw new RuntimeException("MacOSProcessKiller is not yet implemented!");
+        throw notImplemented();
+    }
+
+    /**
+     * Not yet implemented!
+     * 
+     * @TODO write actual procedure
+     */
+    @Override
+    public KillReport killProcess(String programName, KillPolicy policy) throws IOException,
+            InterruptedException {
+        throw notImplemented();
+    }
+
+    /**
+     * Not yet implemented!
+     * 
+     * @TODO write actual procedure
+     */
+    @Override
+    public KillReport killProcess(ProcessMatcher matcher, KillPolicy policy) throws IOException,
+            InterruptedException {
+        throw notImplemented();
+    }
+
+    /**
+     * Not yet implemented!
+     * 
+     * @TODO write actual procedure
+     */
+    @Override
+    public Map<ProcessMatcher, KillReport> killProcesses(Collection<ProcessMatcher> matchers,
+            KillPolicy policy) throws IOException, InterruptedException {
+        throw notImplemented();
+    }
+
+    /**
+     * Logs and creates exception thrown by each not implemented method.
+     * 
+     * @return exception to throw
+     */
+    private UnsupportedOperationException notImplemented() {
+        logger.error("MacOSProcessKiller is not yet implemented! (exception thrown)");
+        return new UnsupportedOperationException("MacOSProcessKiller is not yet implemented!");
     }
 }
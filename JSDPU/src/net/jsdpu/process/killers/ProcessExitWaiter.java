@@ -0,0 +1,129 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.jsdpu.logger.Logger;
+
+/**
+ * Waits until processes finish.
+ * 
+ * <p>
+ * Processes not started by JVM cannot be waited for directly, so waiter polls
+ * ProcessTableSource. Intervals between checks start at the initial one and
+ * double up to the maximal one - processes that finish right after being
+ * signalled are noticed within milliseconds, while the ones that take longer
+ * don't cause busy waiting.
+ * </p>
+ */
+public final class ProcessExitWaiter {
+    private static final Logger logger = getLogger(ProcessExitWaiter.class);
+
+    /**
+     * Default first interval between checks.
+     */
+    public static final long INITIAL_MILLISECONDS_BETWEEN_CHECKS = 1;
+
+    /**
+     * Default maximal interval between checks.
+     */
+    public static final long MAX_MILLISECONDS_BETWEEN_CHECKS = 250;
+
+    private final ProcessTableSource processTableSource;
+    private final long initialInterval;
+    private final long maxInterval;
+
+    /**
+     * Creates waiter with default intervals.
+     * 
+     * @param processTableSource
+     *            source used to check whether processes are running
+     */
+    public ProcessExitWaiter(ProcessTableSource processTableSource) {
+        this(processTableSource, INITIAL_MILLISECONDS_BETWEEN_CHECKS,
+                MAX_MILLISECONDS_BETWEEN_CHECKS, MILLISECONDS);
+    }
+
+    /**
+     * Creates waiter.
+     * 
+     * @param processTableSource
+     *            source used to check whether processes are running
+     * @param initialInterval
+     *            first interval between checks
+     * @param maxInterval
+     *            maximal interval between checks
+     * @param unit
+     *            unit of intervals
+     */
+    public ProcessExitWaiter(ProcessTableSource processTableSource, long initialInterval,
+            long maxInterval, TimeUnit unit) {
+        this.processTableSource = processTableSource;
+        this.initialInterval = max(1, unit.toMillis(initialInterval));
+        this.maxInterval = max(this.initialInterval, unit.toMillis(maxInterval));
+    }
+
+    /**
+     * Waits until all given processes finish or timeout elapses.
+     * 
+     * @param processes
+     *            processes to wait for
+     * @param timeout
+     *            maximal time to wait
+     * @param unit
+     *            unit of timeout
+     * @return processes that are still running - empty if all have finished
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted while waiting
+     */
+    public List<ProcessRecord> waitFor(Collection<ProcessRecord> processes, long timeout,
+            TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long interval = initialInterval;
+        int checks = 0;
+
+        List<ProcessRecord> running = new ArrayList<ProcessRecord>(processes);
+        while (!running.isEmpty()) {
+            running = processTableSource.getRunning(running);
+            checks++;
+            if (running.isEmpty())
+                break;
+
+            long remaining = NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0)
+                break;
+            Thread.sleep(min(interval, remaining));
+            interval = min(interval * 2, maxInterval);
+        }
+
+        logger.detailedTrace("After " + checks + " checks " + running.size()
+                + " processes are still running");
+        return running;
+    }
+}
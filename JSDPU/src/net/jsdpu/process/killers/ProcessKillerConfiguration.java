@@ -15,8 +15,19 @@
  */
 package net.jsdpu.process.killers;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.jsdpu.process.killers.Signal.KILL;
+import static net.jsdpu.process.killers.Signal.TERM;
+
 /**
  * Contains settings used by ProcessKiller.
+ * 
+ * <p>
+ * Settings are read only by {@link IProcessKiller#killProcess(String)} -
+ * methods taking KillPolicy use the passed policy instead.
+ * </p>
+ * 
+ * @see #getPolicy()
  */
 public class ProcessKillerConfiguration {
     /**
@@ -28,4 +39,25 @@ public class ProcessKillerConfiguration {
      * Intervals between attempts to terminate process.
      */
     public static int HOW_MANY_SECONDS_BETWEEN_ATTEMPTS = 30;
+
+    /**
+     * Creates policy described by current settings: TERM sent
+     * {@link #HOW_MANY_ATTEMPTS_BEFORE_FAIL} times (at least once) followed by
+     * KILL, each time waiting up to {@link #HOW_MANY_SECONDS_BETWEEN_ATTEMPTS}
+     * for processes to finish.
+     * 
+     * <p>
+     * Final KILL is needed since some processes ignore TERM - e.g. on Windows
+     * console processes cannot be stopped without forcing them.
+     * </p>
+     * 
+     * @return policy
+     */
+    static KillPolicy getPolicy() {
+        long seconds = Math.max(HOW_MANY_SECONDS_BETWEEN_ATTEMPTS, 0);
+        KillPolicy policy = KillPolicy.signal(TERM, seconds, SECONDS);
+        for (int attempt = 1; attempt < HOW_MANY_ATTEMPTS_BEFORE_FAIL; attempt++)
+            policy = policy.then(TERM, seconds, SECONDS);
+        return policy.then(KILL, seconds, SECONDS);
+    }
 }
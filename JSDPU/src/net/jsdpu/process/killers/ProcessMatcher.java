@@ -0,0 +1,363 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.regex.Pattern.compile;
+
+import java.io.File;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Selects processes by their structured records.
+ * 
+ * <p>
+ * Matchers compare executables and arguments instead of searching for a
+ * substring in the whole command line - so a process that merely mentions
+ * program's name in its arguments isn't taken for it. Everything that needs
+ * preparation (e.g. regular expressions) is done once, when matcher is
+ * created, so one matcher can be evaluated against any number of processes
+ * and snapshots.
+ * </p>
+ * 
+ * <pre>
+ * ProcessMatcher matcher = ProcessMatcher.jar(&quot;app.jar&quot;).and(ProcessMatcher.uid(1000));
+ * </pre>
+ * 
+ * <p>
+ * Matchers are immutable and thread safe.
+ * </p>
+ * 
+ * @see net.jsdpu.process.killers.IProcessKiller#killProcess(ProcessMatcher,
+ *      KillPolicy)
+ */
+public abstract class ProcessMatcher implements Predicate<ProcessRecord> {
+    /**
+     * Whether program names are compared the Windows way.
+     */
+    private static final boolean WINDOWS = File.separatorChar == '\\';
+
+    /**
+     * Base names of interpreters which run script given as their first
+     * argument other than option.
+     */
+    private static final Pattern INTERPRETER = compile("(ba|da|k|z)?sh|(python|perl|ruby|php)"
+            + "[0-9.]*|node|cscript|wscript|powershell|pwsh");
+
+    private final String description;
+
+    private ProcessMatcher(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Whether process is matched.
+     * 
+     * @param process
+     *            process' record
+     * @return true if process is matched
+     */
+    public abstract boolean matches(ProcessRecord process);
+
+    @Override
+    public boolean apply(ProcessRecord process) {
+        return matches(process);
+    }
+
+    /**
+     * Returns matcher matching processes matched by both this and other
+     * matcher.
+     * 
+     * @param other
+     *            other matcher
+     * @return new matcher
+     */
+    public ProcessMatcher and(ProcessMatcher other) {
+        return allOf(this, other);
+    }
+
+    /**
+     * Returns matcher matching processes matched by this or other matcher.
+     * 
+     * @param other
+     *            other matcher
+     * @return new matcher
+     */
+    public ProcessMatcher or(ProcessMatcher other) {
+        return anyOf(this, other);
+    }
+
+    /**
+     * Returns matcher matching processes not matched by this matcher.
+     * 
+     * @return new matcher
+     */
+    public ProcessMatcher negate() {
+        final ProcessMatcher negated = this;
+        return new ProcessMatcher("not(" + this + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                return !negated.matches(process);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    /**
+     * Matches processes running given executable file.
+     * 
+     * @param path
+     *            absolute path to executable
+     * @return matcher
+     */
+    public static ProcessMatcher executable(String path) {
+        final File executable = new File(path);
+        return new ProcessMatcher("executable(" + path + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                String processExecutable = process.getExecutable();
+                return processExecutable != null && executable.equals(new File(processExecutable));
+            }
+        };
+    }
+
+    /**
+     * Matches processes which first argument (argv[0]) has given base name -
+     * e.g. <code>firefox</code> matches both <code>firefox</code> and
+     * <code>/usr/lib/firefox/firefox</code>.
+     * 
+     * @param name
+     *            base name of program
+     * @return matcher
+     */
+    public static ProcessMatcher command(final String name) {
+        return new ProcessMatcher("command(" + name + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                List<String> arguments = process.getArguments();
+                return !arguments.isEmpty() && name.equals(baseName(arguments.get(0)));
+            }
+        };
+    }
+
+    /**
+     * Matches Java processes (java, javaw) running given JAR (
+     * <code>-jar name</code>).
+     * 
+     * @param jar
+     *            JAR's file name, or its path
+     * @return matcher
+     */
+    public static ProcessMatcher jar(final String jar) {
+        final boolean isPath = !jar.equals(baseName(jar));
+        return new ProcessMatcher("jar(" + jar + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                List<String> arguments = process.getArguments();
+                if (arguments.isEmpty() || !isJava(arguments.get(0)))
+                    return false;
+                for (int i = 1; i < arguments.size() - 1; i++)
+                    if ("-jar".equals(arguments.get(i))) {
+                        String argument = arguments.get(i + 1);
+                        return jar.equals(isPath ? argument : baseName(argument));
+                    }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Matches processes which command line contains match for regular
+     * expression. Expression is compiled once.
+     * 
+     * @param regex
+     *            regular expression
+     * @return matcher
+     */
+    public static ProcessMatcher commandLine(String regex) {
+        return commandLine(compile(regex));
+    }
+
+    /**
+     * Matches processes which command line contains match for pattern.
+     * 
+     * @param pattern
+     *            compiled regular expression
+     * @return matcher
+     */
+    public static ProcessMatcher commandLine(final Pattern pattern) {
+        return new ProcessMatcher("commandLine(" + pattern + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                return pattern.matcher(process.getCommandLine()).find();
+            }
+        };
+    }
+
+    /**
+     * Matches processes owned by user. Doesn't match anything on systems
+     * which ProcessTableSource doesn't report owners.
+     * 
+     * @param uid
+     *            user's ID
+     * @return matcher
+     */
+    public static ProcessMatcher uid(final int uid) {
+        return new ProcessMatcher("uid(" + uid + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                return process.getUid() == uid;
+            }
+        };
+    }
+
+    /**
+     * Matches program by name, as used by
+     * {@link IProcessKiller#killProcess(String)}: JAR name for names ending
+     * with <code>.jar</code>, executable for absolute paths, and program's
+     * name for others.
+     * 
+     * <p>
+     * Program's name matches base name of argv[0], process' name (e.g. script
+     * run through shebang) or base name of script run by interpreter (e.g.
+     * <code>python3 /usr/bin/foo</code>). On Windows names are compared
+     * ignoring case and <code>.exe</code> extension, so <code>notepad</code>
+     * matches <code>C:\Windows\NOTEPAD.EXE</code>.
+     * </p>
+     * 
+     * @param programName
+     *            name of program
+     * @return matcher
+     */
+    public static ProcessMatcher program(String programName) {
+        return program(programName, WINDOWS);
+    }
+
+    /**
+     * Matches program by name.
+     * 
+     * @see #program(String)
+     * 
+     * @param programName
+     *            name of program
+     * @param windows
+     *            whether names should be compared the Windows way
+     * @return matcher
+     */
+    static ProcessMatcher program(String programName, boolean windows) {
+        if (programName.endsWith(".jar"))
+            return jar(programName);
+        if (new File(programName).isAbsolute())
+            return executable(programName).or(programName(baseName(programName), windows));
+        return programName(programName, windows);
+    }
+
+    /**
+     * Matches processes matched by all matchers.
+     * 
+     * @param matchers
+     *            matchers
+     * @return matcher
+     */
+    public static ProcessMatcher allOf(ProcessMatcher... matchers) {
+        final List<ProcessMatcher> all = ImmutableList.copyOf(matchers);
+        return new ProcessMatcher("allOf(" + Joiner.on(", ").join(all) + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                for (ProcessMatcher matcher : all)
+                    if (!matcher.matches(process))
+                        return false;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Matches processes matched by any of matchers.
+     * 
+     * @param matchers
+     *            matchers
+     * @return matcher
+     */
+    public static ProcessMatcher anyOf(ProcessMatcher... matchers) {
+        final List<ProcessMatcher> any = ImmutableList.copyOf(matchers);
+        return new ProcessMatcher("anyOf(" + Joiner.on(", ").join(any) + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                for (ProcessMatcher matcher : any)
+                    if (matcher.matches(process))
+                        return true;
+                return false;
+            }
+        };
+    }
+
+    private static ProcessMatcher programName(final String programName, final boolean windows) {
+        final String name = normalizeName(programName, windows);
+        return new ProcessMatcher("program(" + programName + ")") {
+            @Override
+            public boolean matches(ProcessRecord process) {
+                List<String> arguments = process.getArguments();
+                if (!arguments.isEmpty()) {
+                    String command = normalizeName(baseName(arguments.get(0)), windows);
+                    if (name.equals(command))
+                        return true;
+                    if (INTERPRETER.matcher(command).matches())
+                        for (String argument : arguments.subList(1, arguments.size()))
+                            if (!argument.startsWith("-"))
+                                return name.equals(normalizeName(baseName(argument), windows));
+                }
+                return process.getName() != null
+                        && name.equals(normalizeName(process.getName(), windows));
+            }
+        };
+    }
+
+    private static String normalizeName(String name, boolean windows) {
+        if (!windows)
+            return name;
+        String normalized = name.toLowerCase();
+        return normalized.endsWith(".exe") ? normalized.substring(0, normalized.length() - 4)
+                : normalized;
+    }
+
+    private static boolean isJava(String program) {
+        String name = baseName(program).toLowerCase();
+        if (name.endsWith(".exe"))
+            name = name.substring(0, name.length() - 4);
+        return name.equals("java") || name.equals("javaw");
+    }
+
+    /**
+     * Returns file name from path - both / and \ are treated as separators.
+     * 
+     * @param path
+     *            path
+     * @return file name
+     */
+    static String baseName(String path) {
+        int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return path.substring(separator + 1);
+    }
+}
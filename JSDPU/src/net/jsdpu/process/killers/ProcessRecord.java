@@ -0,0 +1,229 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import java.io.File;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Information about single process read from process table.
+ * 
+ * <p>
+ * Records created by ProcfsScanner read executable and UID lazily - only when
+ * they are needed - since most of the time processes are matched by their
+ * command line only.
+ * </p>
+ * 
+ * @see net.jsdpu.process.killers.ProcfsScanner
+ */
+public final class ProcessRecord {
+    private final int pid;
+    private final int parentPid;
+    private final int processGroup;
+    private final int session;
+    private final char state;
+    private final long startTime;
+    private final String name;
+    private final List<String> arguments;
+    private final File directory;
+    private volatile Integer uid;
+    private volatile String executable;
+    private volatile boolean executableRead;
+
+    /**
+     * Creates record.
+     * 
+     * @param pid
+     *            process' ID
+     * @param parentPid
+     *            parent process' ID
+     * @param processGroup
+     *            process group's ID (-1 if not supported)
+     * @param session
+     *            session's ID (-1 if not supported)
+     * @param state
+     *            state (e.g. R, S, Z)
+     * @param startTime
+     *            time when process started (in clock ticks after boot)
+     * @param uid
+     *            UID of owner (-1 if unknown)
+     * @param name
+     *            name of process (usually truncated name of executable)
+     * @param executable
+     *            path to executable (null if it cannot be read)
+     * @param arguments
+     *            command line (empty for kernel threads and zombies)
+     */
+    public ProcessRecord(int pid, int parentPid, int processGroup, int session, char state,
+            long startTime, int uid, String name, String executable, List<String> arguments) {
+        this.pid = pid;
+        this.parentPid = parentPid;
+        this.processGroup = processGroup;
+        this.session = session;
+        this.state = state;
+        this.startTime = startTime;
+        this.name = name;
+        this.arguments = ImmutableList.copyOf(arguments);
+        this.directory = null;
+        this.uid = uid;
+        this.executable = executable;
+        this.executableRead = true;
+    }
+
+    /**
+     * Creates record which reads executable and UID from /proc when needed.
+     * 
+     * @param pid
+     *            process' ID
+     * @param parentPid
+     *            parent process' ID
+     * @param processGroup
+     *            process group's ID
+     * @param session
+     *            session's ID
+     * @param state
+     *            state (e.g. R, S, Z)
+     * @param startTime
+     *            time when process started (in clock ticks after boot)
+     * @param name
+     *            name of process (usually truncated name of executable)
+     * @param arguments
+     *            command line (empty for kernel threads and zombies)
+     * @param directory
+     *            /proc/[pid] directory
+     */
+    ProcessRecord(int pid, int parentPid, int processGroup, int session, char state,
+            long startTime, String name, List<String> arguments, File directory) {
+        this.pid = pid;
+        this.parentPid = parentPid;
+        this.processGroup = processGroup;
+        this.session = session;
+        this.state = state;
+        this.startTime = startTime;
+        this.name = name;
+        this.arguments = ImmutableList.copyOf(arguments);
+        this.directory = directory;
+        this.uid = null;
+        this.executable = null;
+        this.executableRead = false;
+    }
+
+    /**
+     * @return process' ID
+     */
+    public int getPid() {
+        return pid;
+    }
+
+    /**
+     * @return parent process' ID
+     */
+    public int getParentPid() {
+        return parentPid;
+    }
+
+    /**
+     * @return process group's ID, -1 if not supported
+     */
+    public int getProcessGroup() {
+        return processGroup;
+    }
+
+    /**
+     * @return session's ID, -1 if not supported
+     */
+    public int getSession() {
+        return session;
+    }
+
+    /**
+     * @return process' state (e.g. R, S, Z)
+     */
+    public char getState() {
+        return state;
+    }
+
+    /**
+     * Whether process has finished, but wasn't reaped by its parent yet.
+     * 
+     * @return true if process is zombie
+     */
+    public boolean isZombie() {
+        return state == 'Z' || state == 'X';
+    }
+
+    /**
+     * Returns process' start time. Together with PID identifies process, even
+     * if its PID is reused later.
+     * 
+     * @return start time in clock ticks after boot on Linux, or creation date
+     *         as yyyymmddHHMMSSmmm on Windows
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return UID of process' owner, -1 if unknown
+     */
+    public int getUid() {
+        if (uid == null)
+            uid = ProcfsScanner.readUid(directory);
+        return uid;
+    }
+
+    /**
+     * @return name of process (usually truncated name of executable)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return path to executable, null if it cannot be read
+     */
+    public String getExecutable() {
+        if (!executableRead) {
+            executable = ProcfsScanner.readExecutable(directory);
+            executableRead = true;
+        }
+        return executable;
+    }
+
+    /**
+     * @return command line arguments (including argv[0])
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns command line as displayed by ps.
+     * 
+     * @return arguments separated by spaces, or [name] if there are none
+     */
+    public String getCommandLine() {
+        return arguments.isEmpty() ? "[" + name + "]" : Joiner.on(' ').join(arguments);
+    }
+
+    @Override
+    public String toString() {
+        return pid + " " + getCommandLine();
+    }
+}
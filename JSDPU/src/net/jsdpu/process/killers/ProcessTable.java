@@ -0,0 +1,258 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Snapshot of process table.
+ * 
+ * <p>
+ * Taken once and then used for matching processes, resolving their PIDs and
+ * checking whether they are still running, so that all of them see the same
+ * state and the table is never listed more than once for each of them.
+ * </p>
+ * 
+ * <p>
+ * Map of children is built on first use, from processes' parent PIDs. Since
+ * parent's PID can be reused after it finishes (Windows doesn't reparent
+ * orphans), process started before its supposed parent isn't its child.
+ * </p>
+ * 
+ * @see net.jsdpu.process.killers.ProcessTableSource
+ */
+public final class ProcessTable {
+    private final List<ProcessRecord> processes;
+    private final Map<Integer, ProcessRecord> processesByPid;
+    private final long creationTime;
+    private Map<Integer, List<ProcessRecord>> childrenByPid;
+
+    /**
+     * Creates snapshot.
+     * 
+     * @param processes
+     *            records of processes
+     */
+    public ProcessTable(List<ProcessRecord> processes) {
+        this.processes = ImmutableList.copyOf(processes);
+        processesByPid = new HashMap<Integer, ProcessRecord>(processes.size() * 2);
+        for (ProcessRecord process : processes)
+            processesByPid.put(process.getPid(), process);
+        creationTime = System.nanoTime();
+    }
+
+    /**
+     * @return all processes
+     */
+    public List<ProcessRecord> getProcesses() {
+        return processes;
+    }
+
+    /**
+     * Returns process with given PID.
+     * 
+     * @param pid
+     *            process' ID
+     * @return process' record, or null if there is no such process
+     */
+    public ProcessRecord getProcess(int pid) {
+        return processesByPid.get(pid);
+    }
+
+    /**
+     * Returns processes matching predicate.
+     * 
+     * @param predicate
+     *            predicate processes have to match
+     * @return matching processes
+     */
+    public List<ProcessRecord> find(Predicate<ProcessRecord> predicate) {
+        List<ProcessRecord> found = new ArrayList<ProcessRecord>();
+        for (ProcessRecord process : processes)
+            if (predicate.apply(process))
+                found.add(process);
+        return found;
+    }
+
+    /**
+     * Returns direct children of process.
+     * 
+     * @param process
+     *            parent process
+     * @return children
+     */
+    public List<ProcessRecord> getChildren(ProcessRecord process) {
+        List<ProcessRecord> children = getChildrenByPid().get(process.getPid());
+        return children != null ? Collections.unmodifiableList(children) : Collections
+                .<ProcessRecord> emptyList();
+    }
+
+    /**
+     * Returns all descendants of process - children, their children, etc.
+     * 
+     * @param process
+     *            root process
+     * @return descendants ordered by distance from root
+     */
+    public List<ProcessRecord> getDescendants(ProcessRecord process) {
+        List<ProcessRecord> descendants = new ArrayList<ProcessRecord>();
+        Set<Integer> visited = new HashSet<Integer>();
+        visited.add(process.getPid());
+        List<ProcessRecord> level = getChildren(process);
+        while (!level.isEmpty()) {
+            List<ProcessRecord> nextLevel = new ArrayList<ProcessRecord>();
+            for (ProcessRecord child : level)
+                if (visited.add(child.getPid())) {
+                    descendants.add(child);
+                    nextLevel.addAll(getChildren(child));
+                }
+            level = nextLevel;
+        }
+        return descendants;
+    }
+
+    /**
+     * Returns ancestors of process - parent, its parent, etc.
+     * 
+     * @param process
+     *            process
+     * @return ancestors ordered from parent
+     */
+    public List<ProcessRecord> getAncestors(ProcessRecord process) {
+        List<ProcessRecord> ancestors = new ArrayList<ProcessRecord>();
+        Set<Integer> visited = new HashSet<Integer>();
+        visited.add(process.getPid());
+        ProcessRecord child = process;
+        ProcessRecord parent = processesByPid.get(process.getParentPid());
+        while (parent != null && isParent(parent, child) && visited.add(parent.getPid())) {
+            ancestors.add(parent);
+            child = parent;
+            parent = processesByPid.get(parent.getParentPid());
+        }
+        return ancestors;
+    }
+
+    /**
+     * Returns processes from process group.
+     * 
+     * @param processGroup
+     *            process group ID
+     * @return processes
+     */
+    public List<ProcessRecord> getProcessGroup(int processGroup) {
+        List<ProcessRecord> found = new ArrayList<ProcessRecord>();
+        for (ProcessRecord process : processes)
+            if (process.getProcessGroup() == processGroup)
+                found.add(process);
+        return found;
+    }
+
+    /**
+     * Returns processes from session.
+     * 
+     * @param session
+     *            session ID
+     * @return processes
+     */
+    public List<ProcessRecord> getSession(int session) {
+        List<ProcessRecord> found = new ArrayList<ProcessRecord>();
+        for (ProcessRecord process : processes)
+            if (process.getSession() == session)
+                found.add(process);
+        return found;
+    }
+
+    /**
+     * Whether process is still running.
+     * 
+     * <p>
+     * Process is recognized by both PID and start time, so that a new process
+     * that reused PID isn't taken for it. Zombies aren't considered running.
+     * </p>
+     * 
+     * @param process
+     *            process' record, possibly from other snapshot
+     * @return true if process is running
+     */
+    public boolean isRunning(ProcessRecord process) {
+        ProcessRecord current = processesByPid.get(process.getPid());
+        return current != null && current.getStartTime() == process.getStartTime()
+                && !current.isZombie();
+    }
+
+    /**
+     * Returns those of processes, that are still running.
+     * 
+     * @param processes
+     *            processes' records, possibly from other snapshot
+     * @return running processes
+     */
+    public List<ProcessRecord> getRunning(Collection<ProcessRecord> processes) {
+        List<ProcessRecord> running = new ArrayList<ProcessRecord>();
+        for (ProcessRecord process : processes)
+            if (isRunning(process))
+                running.add(process);
+        return running;
+    }
+
+    /**
+     * Returns age of snapshot.
+     * 
+     * @param unit
+     *            unit of returned value
+     * @return time since snapshot was taken
+     */
+    public long getAge(TimeUnit unit) {
+        return unit.convert(System.nanoTime() - creationTime, NANOSECONDS);
+    }
+
+    private synchronized Map<Integer, List<ProcessRecord>> getChildrenByPid() {
+        if (childrenByPid == null) {
+            childrenByPid = new HashMap<Integer, List<ProcessRecord>>();
+            for (ProcessRecord process : processes) {
+                ProcessRecord parent = processesByPid.get(process.getParentPid());
+                if (process.getPid() == process.getParentPid() || parent != null
+                        && !isParent(parent, process))
+                    continue;
+                List<ProcessRecord> children = childrenByPid.get(process.getParentPid());
+                if (children == null) {
+                    children = new ArrayList<ProcessRecord>();
+                    childrenByPid.put(process.getParentPid(), children);
+                }
+                children.add(process);
+            }
+        }
+        return childrenByPid;
+    }
+
+    private static boolean isParent(ProcessRecord parent, ProcessRecord child) {
+        return parent.getPid() == child.getParentPid()
+                && parent.getStartTime() <= child.getStartTime();
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Source of process table's snapshots.
+ * 
+ * @see net.jsdpu.process.killers.ProcfsScanner
+ * @see net.jsdpu.process.killers.WmicScanner
+ * @see net.jsdpu.process.killers.CachedProcessTableSource
+ */
+public interface ProcessTableSource {
+    /**
+     * Returns snapshot of process table.
+     * 
+     * @return snapshot
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted, while waiting for system
+     *             dependent process
+     */
+    public ProcessTable getProcessTable() throws IOException, InterruptedException;
+
+    /**
+     * Checks which of given processes are still running. Result is never
+     * taken from cache, and implementations should make it cheaper than
+     * obtaining whole snapshot, since it is used for polling.
+     * 
+     * @param processes
+     *            processes to check
+     * @return processes that are still running
+     * @throws IOException
+     *             thrown when error occurs in system dependent process
+     * @throws InterruptedException
+     *             thrown when thread is interrupted, while waiting for system
+     *             dependent process
+     */
+    public List<ProcessRecord> getRunning(Collection<ProcessRecord> processes)
+            throws IOException, InterruptedException;
+
+    /**
+     * Discards cached snapshot, if there is any - e.g. after processes were
+     * signalled.
+     */
+    public void invalidate();
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.jsdpu.logger.Logger;
+
+/**
+ * Reads process table directly from /proc file system.
+ * 
+ * <p>
+ * For each process it reads <code>/proc/[pid]/stat</code> and
+ * <code>/proc/[pid]/cmdline</code> (<code>/proc/[pid]/exe</code> link and
+ * owner are read by ProcessRecord only if needed), which is much cheaper than
+ * running and parsing <code>ps</code>. Files are read into one reused buffer
+ * and parsed in place. Processes that finish during the scan, or which files
+ * cannot be read, are skipped.
+ * </p>
+ * 
+ * <p>
+ * Scanner is thread safe.
+ * </p>
+ */
+public class ProcfsScanner implements ProcessTableSource {
+    private static final Logger logger = getLogger(ProcfsScanner.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int STAT_FIELDS = 20;
+
+    private final File root;
+    private final long[] fields;
+    private byte[] buffer;
+
+    /**
+     * Creates scanner of /proc.
+     */
+    public ProcfsScanner() {
+        this(new File("/proc"));
+    }
+
+    /**
+     * Creates scanner of given directory.
+     * 
+     * @param root
+     *            directory with the same structure as /proc
+     */
+    public ProcfsScanner(File root) {
+        this.root = root;
+        fields = new long[STAT_FIELDS];
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Whether /proc file system is available.
+     * 
+     * @return true if scanner can be used
+     */
+    public boolean isAvailable() {
+        return new File(root, "self").isDirectory() || new File(root, "1").isDirectory();
+    }
+
+    /**
+     * Reads all processes.
+     * 
+     * @return records of running processes
+     */
+    public synchronized List<ProcessRecord> scan() {
+        String[] names = root.list();
+        List<ProcessRecord> records = new ArrayList<ProcessRecord>(names != null ? names.length
+                : 0);
+        if (names == null) {
+            logger.warning("Failed to list " + root);
+            return records;
+        }
+
+        for (String name : names) {
+            int pid = parsePid(name);
+            if (pid < 0)
+                continue;
+            ProcessRecord record = readProcess(pid);
+            if (record != null)
+                records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public ProcessTable getProcessTable() {
+        return new ProcessTable(scan());
+    }
+
+    /**
+     * Checks processes one by one reading only their own /proc entries.
+     */
+    @Override
+    public synchronized List<ProcessRecord> getRunning(Collection<ProcessRecord> processes) {
+        List<ProcessRecord> running = new ArrayList<ProcessRecord>();
+        for (ProcessRecord process : processes) {
+            ProcessRecord current = readProcess(process.getPid());
+            if (current != null && current.getStartTime() == process.getStartTime()
+                    && !current.isZombie())
+                running.add(process);
+        }
+        return running;
+    }
+
+    @Override
+    public void invalidate() {
+        // nothing is cached
+    }
+
+    /**
+     * Reads single process.
+     * 
+     * @param pid
+     *            process' ID
+     * @return record of process, or null if there is no such process
+     */
+    public synchronized ProcessRecord read(int pid) {
+        return readProcess(pid);
+    }
+
+    private ProcessRecord readProcess(int pid) {
+        File directory = new File(root, Integer.toString(pid));
+        try {
+            int length = readFile(new File(directory, "stat"));
+            int nameEnd = lastIndexOf(')', length);
+            int nameStart = indexOf('(', length);
+            if (nameStart < 0 || nameEnd < nameStart)
+                return null;
+            String name = new String(buffer, nameStart + 1, nameEnd - nameStart - 1, UTF_8);
+
+            // fields after name: state ppid pgrp session ... starttime (20th)
+            int position = nameEnd + 2;
+            if (position >= length)
+                return null;
+            char state = (char) buffer[position];
+            position += 1;
+            for (int field = 1; field < STAT_FIELDS; field++) {
+                while (position < length && buffer[position] == ' ')
+                    position++;
+                long value = 0;
+                boolean negative = position < length && buffer[position] == '-';
+                if (negative)
+                    position++;
+                while (position < length && buffer[position] >= '0' && buffer[position] <= '9')
+                    value = value * 10 + (buffer[position++] - '0');
+                fields[field] = negative ? -value : value;
+            }
+
+            List<String> arguments = readArguments(new File(directory, "cmdline"));
+            return new ProcessRecord(pid, (int) fields[1], (int) fields[2], (int) fields[3],
+                    state, fields[19], name, arguments, directory);
+        } catch (IOException e) {
+            // process finished or is inaccessible
+            return null;
+        }
+    }
+
+    private List<String> readArguments(File cmdline) throws IOException {
+        int length = readFile(cmdline);
+        List<String> arguments = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < length; i++)
+            if (buffer[i] == 0) {
+                arguments.add(new String(buffer, start, i - start, UTF_8));
+                start = i + 1;
+            }
+        if (start < length)
+            arguments.add(new String(buffer, start, length - start, UTF_8));
+        return arguments;
+    }
+
+    /**
+     * Reads executable of process.
+     * 
+     * @param directory
+     *            /proc/[pid] directory
+     * @return path to executable, or null if it cannot be read
+     */
+    static String readExecutable(File directory) {
+        try {
+            return Files.readSymbolicLink(Paths.get(directory.getPath(), "exe")).toString();
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // kernel thread, zombie or process of other user
+            return null;
+        }
+    }
+
+    /**
+     * Reads UID of process' owner.
+     * 
+     * @param directory
+     *            /proc/[pid] directory
+     * @return UID, or -1 if it cannot be read
+     */
+    static int readUid(File directory) {
+        try {
+            Path path = Paths.get(directory.getPath());
+            return ((Number) Files.getAttribute(path, "unix:uid")).intValue();
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException
+                | ClassCastException e) {
+            return -1;
+        }
+    }
+
+    private int readFile(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            int length = 0;
+            int read;
+            while ((read = input.read(buffer, length, buffer.length - length)) >= 0) {
+                length += read;
+                if (length == buffer.length) {
+                    byte[] larger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffer = larger;
+                }
+            }
+            return length;
+        }
+    }
+
+    private int indexOf(char character, int length) {
+        for (int i = 0; i < length; i++)
+            if (buffer[i] == character)
+                return i;
+        return -1;
+    }
+
+    private int lastIndexOf(char character, int length) {
+        for (int i = length - 1; i >= 0; i--)
+            if (buffer[i] == character)
+                return i;
+        return -1;
+    }
+
+    private static int parsePid(String name) {
+        if (name.isEmpty() || name.length() > 9)
+            return -1;
+        int pid = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char digit = name.charAt(i);
+            if (digit < '0' || digit > '9')
+                return -1;
+            pid = pid * 10 + (digit - '0');
+        }
+        return pid;
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+/**
+ * Signals that can be sent to processes by killers.
+ * 
+ * <p>
+ * Windows has no signals - there {@link #KILL} terminates process forcefully
+ * (<code>taskkill /F</code>), while all other signals ask it to close
+ * (<code>taskkill</code> without <code>/F</code>).
+ * </p>
+ * 
+ * @see net.jsdpu.process.killers.KillPolicy
+ */
+public enum Signal {
+    /**
+     * Asks process to terminate. Program can handle it (e.g. save its state)
+     * or ignore it.
+     */
+    TERM,
+
+    /**
+     * Interrupts process as if user pressed Ctrl+C.
+     */
+    INT,
+
+    /**
+     * Informs process that its terminal was closed.
+     */
+    HUP,
+
+    /**
+     * Kills process. Cannot be handled nor ignored.
+     */
+    KILL;
+}
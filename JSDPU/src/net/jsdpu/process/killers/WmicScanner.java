@@ -0,0 +1,165 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.regex.Pattern.compile;
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.jsdpu.logger.Logger;
+
+/**
+ * Reads process table on Windows with one WMIC call.
+ * 
+ * <p>
+ * Since Windows passes command line to programs as a whole, it is split into
+ * arguments the way Microsoft C runtime does it (whitespaces outside of
+ * quotes separate arguments, quotes are removed). Process groups and sessions
+ * aren't supported, and are reported as -1 - Windows' logon session doesn't
+ * describe processes started together the way Unix session does.
+ * </p>
+ */
+public class WmicScanner implements ProcessTableSource {
+    private static final Logger logger = getLogger(WmicScanner.class);
+
+    /**
+     * Line of CSV output: Node, CommandLine, CreationDate, ExecutablePath,
+     * Name, ParentProcessId, ProcessId. Command line can contain commas, so
+     * the other columns are matched around it.
+     */
+    private static final Pattern LINE = compile("^[^,]*,(.*),(\\d{14}\\.\\d{6}[+-]\\d{3})?,"
+            + "(.*),([^,]*),(\\d+),(\\d+)$");
+
+    @Override
+    public ProcessTable getProcessTable() throws IOException, InterruptedException {
+        logger.detailedTrace("Obtaining process table");
+        Process process = new ProcessBuilder("wmic", "process", "get",
+                "CommandLine,CreationDate,ExecutablePath,Name,ParentProcessId,ProcessId",
+                "/format:csv").redirectErrorStream(true).start();
+        process.getOutputStream().close();
+
+        List<ProcessRecord> records = new ArrayList<ProcessRecord>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ProcessRecord record = parse(line.trim());
+                if (record != null)
+                    records.add(record);
+            }
+        }
+
+        if (process.waitFor() != 0)
+            throw new IOException("WMIC failed to list processes");
+        return new ProcessTable(records);
+    }
+
+    @Override
+    public List<ProcessRecord> getRunning(Collection<ProcessRecord> processes)
+            throws IOException, InterruptedException {
+        // WMIC call costs the same regardless of the number of processes
+        return getProcessTable().getRunning(processes);
+    }
+
+    @Override
+    public void invalidate() {
+        // nothing is cached
+    }
+
+    /**
+     * Parses line of WMIC's CSV output.
+     * 
+     * @param line
+     *            line of output
+     * @return record, or null if line doesn't describe process
+     */
+    static ProcessRecord parse(String line) {
+        Matcher matcher = LINE.matcher(line);
+        if (!matcher.matches())
+            return null;
+
+        String commandLine = matcher.group(1);
+        String creationDate = matcher.group(2);
+        String executable = matcher.group(3);
+        // yyyymmddHHMMSS followed by milliseconds - microseconds wouldn't fit long
+        long startTime = creationDate != null ? Long.parseLong(creationDate.substring(0, 14)
+                + creationDate.substring(15, 18)) : 0;
+        List<String> arguments = splitCommandLine(commandLine);
+
+        return new ProcessRecord(Integer.parseInt(matcher.group(6)), Integer.parseInt(matcher
+                .group(5)), -1, -1, 'R', startTime, -1, matcher.group(4),
+                executable.isEmpty() ? null : executable, arguments);
+    }
+
+    /**
+     * Splits command line into arguments. Backslashes are literal unless they
+     * precede quote - then each pair of them is one backslash, and odd one
+     * escapes the quote.
+     * 
+     * @param commandLine
+     *            command line
+     * @return arguments
+     */
+    static List<String> splitCommandLine(String commandLine) {
+        List<String> arguments = new ArrayList<String>();
+        StringBuilder argument = new StringBuilder();
+        boolean inArgument = false;
+        boolean quoted = false;
+        int backslashes = 0;
+        for (char c : commandLine.toCharArray()) {
+            if (c == '\\') {
+                backslashes++;
+                inArgument = true;
+                continue;
+            }
+            if (c == '"') {
+                for (int i = 0; i < backslashes / 2; i++)
+                    argument.append('\\');
+                if (backslashes % 2 == 1)
+                    argument.append('"');
+                else
+                    quoted = !quoted;
+                backslashes = 0;
+                inArgument = true;
+                continue;
+            }
+            for (; backslashes > 0; backslashes--)
+                argument.append('\\');
+            if (!quoted && (c == ' ' || c == '\t')) {
+                if (inArgument)
+                    arguments.add(argument.toString());
+                argument.setLength(0);
+                inArgument = false;
+            } else {
+                argument.append(c);
+                inArgument = true;
+            }
+        }
+        for (; backslashes > 0; backslashes--)
+            argument.append('\\');
+        if (inArgument)
+            arguments.add(argument.toString());
+        return arguments;
+    }
+}
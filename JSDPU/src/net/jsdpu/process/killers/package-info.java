@@ -26,5 +26,7 @@
  * @see net.jsdpu.process.killers.MacOSProcessKiller
  * @see net.jsdpu.process.killers.WindowsProcessKiller
  * @see net.jsdpu.process.killers.ProcessKillerException
+ * @see net.jsdpu.process.killers.ProcessMatcher
+ * @see net.jsdpu.process.killers.KillPolicy
  */
-package net.jsdpu.process.killers;
\ No newline at end of file
+package net.jsdpu.process.killers;
\ No newline at end of file
@@ -15,8 +15,59 @@
  */
 package net.jsdpu.process.queue;
 
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
 /**
- * TODO
+ * ProcessQueue containing elevated processes.
+ * 
+ * <p>
+ * Elevated processes keep their position in queue, but all of them that use
+ * the same ElevatedProcessBuilder class are run in one elevation session, so
+ * that elevation (e.g. pkexec or UAC prompt) is requested once per such
+ * class, instead of once per each group of consecutive elevated processes.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.ElevationSession
  */
 public class ElevatedProcessQueue extends ProcessQueue {
+    private final List<EnqueuedProcess> elevatedProcesses;
+    private final int elevationSessions;
+
+    /**
+     * Creates queue.
+     * 
+     * @param processes
+     *            enqueued processes
+     * @param elevatedProcesses
+     *            elevated subset of enqueued processes
+     * @param elevationSessions
+     *            number of elevation sessions used by queue
+     */
+    ElevatedProcessQueue(List<EnqueuedProcess> processes,
+            List<EnqueuedProcess> elevatedProcesses, int elevationSessions) {
+        super(processes);
+        this.elevatedProcesses = ImmutableList.copyOf(elevatedProcesses);
+        this.elevationSessions = elevationSessions;
+    }
+
+    /**
+     * Returns elevated processes, in order in which they were enqueued.
+     * 
+     * @return elevated processes
+     */
+    public List<EnqueuedProcess> getElevatedProcesses() {
+        return elevatedProcesses;
+    }
+
+    /**
+     * Returns number of elevation sessions (and so elevation requests) used by
+     * queue.
+     * 
+     * @return number of elevation sessions
+     */
+    public int getElevationSessions() {
+        return elevationSessions;
+    }
 }
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.lang.System.err;
+import static net.jsdpu.logger.Logger.getLogger;
+import static net.jsdpu.process.queue.QueueCaller.FAILED_TO_START;
+import static net.jsdpu.process.queue.QueueCaller.drain;
+import static net.jsdpu.process.queue.QueueCaller.prepareCommand;
+import static net.jsdpu.process.queue.QueueEntry.writeEntries;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import net.jsdpu.logger.Logger;
+import net.jsdpu.process.elevated.ElevatedProcessBuilder;
+
+/**
+ * Elevated QueueCaller kept running for the whole queue.
+ * 
+ * <p>
+ * Elevation is requested once, when the first group of entries is run. Each
+ * following group using the same ElevatedProcessBuilder is passed into the
+ * already elevated QueueCaller as a next batch of entries, so that queue
+ * never asks for elevation more than once per ElevatedProcessBuilder class,
+ * no matter how elevated and not elevated entries are interleaved.
+ * </p>
+ * 
+ * <p>
+ * Frames of elevated processes are forwarded with indexes shifted to their
+ * place in queue. If session cannot be started or ends prematurely (e.g.
+ * user refused elevation), all its remaining entries fail instead of asking
+ * for elevation again.
+ * </p>
+ * 
+ * <p>
+ * Session is driven through elevated QueueCaller's standard input, so if
+ * ElevatedProcessBuilder doesn't forward it (e.g. Windows' UAC handler), each
+ * entry is elevated separately instead.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.QueueCaller
+ */
+class ElevationSession implements Closeable {
+    private static final Logger logger = getLogger(ElevationSession.class);
+
+    private final String elevation;
+    private Process process;
+    private DataOutputStream input;
+    private FrameDecoder decoder;
+    private Thread errorDrainer;
+    private int base;
+    private boolean failed;
+    private Boolean inputForwarded;
+
+    /**
+     * Creates session. Elevated QueueCaller is started lazily.
+     * 
+     * @param elevation
+     *            name of ElevatedProcessBuilder class used for elevation
+     */
+    ElevationSession(String elevation) {
+        this.elevation = elevation;
+        base = 0;
+        failed = false;
+    }
+
+    /**
+     * Runs group of entries in session, and forwards their frames. Returns
+     * after each entry's exit frame has been written.
+     * 
+     * @param encoder
+     *            encoder of frames
+     * @param offset
+     *            index of first entry in queue
+     * @param entries
+     *            elevated entries using session's ElevatedProcessBuilder
+     * @throws IOException
+     *             thrown when frames cannot be written
+     */
+    void run(final FrameEncoder encoder, final int offset, List<QueueEntry> entries)
+            throws IOException {
+        final int size = entries.size();
+        final BitSet exited = new BitSet(size);
+        try {
+            if (!failed && !isInputForwarded()) {
+                for (int i = 0; i < size; i++) {
+                    QueueCaller.run(encoder, offset + i, toElevatedProcessBuilder(entries.get(i))
+                            .getProcessBuilder());
+                    exited.set(i);
+                }
+            } else if (!failed) {
+                if (process == null)
+                    start();
+                List<QueueEntry> elevatedEntries = new ArrayList<QueueEntry>();
+                for (QueueEntry entry : entries)
+                    elevatedEntries.add(entry.withoutElevation());
+                writeEntries(input, elevatedEntries);
+
+                FrameDecoder.Listener listener = new FrameDecoder.Listener() {
+                    @Override
+                    public void started(int index) throws IOException {
+                        if (isInBatch(index))
+                            encoder.started(offset + index - base);
+                    }
+
+                    @Override
+                    public void write(int index, byte stream, byte[] payload, int off, int len)
+                            throws IOException {
+                        if (isInBatch(index))
+                            encoder.write(offset + index - base, stream, payload, off, len);
+                    }
+
+                    @Override
+                    public void exited(int index, int exitValue) throws IOException {
+                        if (isInBatch(index) && !exited.get(index - base)) {
+                            exited.set(index - base);
+                            encoder.exited(offset + index - base, exitValue);
+                        }
+                    }
+
+                    private boolean isInBatch(int index) {
+                        return index >= base && index < base + size;
+                    }
+                };
+                while (exited.cardinality() < size)
+                    if (!decoder.decodeFrame(listener)) {
+                        failed = true;
+                        break;
+                    }
+            }
+        } catch (IOException | ReflectiveOperationException | ClassCastException e) {
+            // either elevated QueueCaller or parent's stream failed
+            logger.error("Elevation session failed (exception thrown)", e);
+            failed = true;
+        } finally {
+            base += size;
+        }
+
+        for (int i = exited.nextClearBit(0); i < size; i = exited.nextClearBit(i + 1))
+            encoder.exited(offset + i, FAILED_TO_START);
+    }
+
+    /**
+     * Ends session - elevated QueueCaller finishes once its input is closed.
+     */
+    @Override
+    public void close() {
+        if (process == null)
+            return;
+        try {
+            input.close();
+        } catch (IOException e) {
+            logger.error("Failed to close elevated QueueCaller's input (exception thrown)", e);
+        }
+        try {
+            process.waitFor();
+            errorDrainer.join();
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while waiting for elevated QueueCaller (exception thrown)",
+                    e);
+        }
+    }
+
+    private boolean isInputForwarded() throws ReflectiveOperationException {
+        if (inputForwarded == null)
+            inputForwarded = newBuilder().isInputForwarded();
+        return inputForwarded;
+    }
+
+    private ElevatedProcessBuilder toElevatedProcessBuilder(QueueEntry entry)
+            throws ReflectiveOperationException {
+        ElevatedProcessBuilder builder = newBuilder().setCommand(entry.command)
+                .setDirectory(entry.directory).setRedirectErrorStream(entry.redirectErrorStream);
+        builder.getEnvironment().clear();
+        builder.getEnvironment().putAll(entry.environment);
+        return builder;
+    }
+
+    private ElevatedProcessBuilder newBuilder() throws ReflectiveOperationException {
+        return (ElevatedProcessBuilder) Class.forName(elevation).getConstructor().newInstance();
+    }
+
+    private void start() throws IOException, ReflectiveOperationException {
+        process = newBuilder().setCommand(prepareCommand()).start();
+        input = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        decoder = new FrameDecoder(process.getInputStream());
+
+        errorDrainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain(process.getErrorStream(), err);
+            }
+        });
+        errorDrainer.start();
+    }
+}
@@ -17,11 +17,19 @@ package net.jsdpu.process.queue;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Representation of enqueued process. Since it isn't represented as an actual
  * Process in current VM, but exists in remotely run child VM, it has to be
  * controlled via wrapper.
+ * 
+ * <p>
+ * Process that couldn't be started, or which queue ended before it has
+ * finished, reports exit value 127.
+ * </p>
  */
 public interface EnqueuedProcess {
     /**
@@ -53,4 +61,36 @@ public interface EnqueuedProcess {
      */
     @SuppressWarnings("javadoc")
     public int waitFor();
+
+    /**
+     * @see java.lang.Process#waitFor(long, TimeUnit)
+     */
+    @SuppressWarnings("javadoc")
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * @see java.lang.Process#isAlive()
+     */
+    @SuppressWarnings("javadoc")
+    public boolean isAlive();
+
+    /**
+     * Returns future completed with process' exit value once it finishes.
+     * 
+     * <p>
+     * Future is completed by the thread reading queue's output, so listeners
+     * run with direct executor should return quickly. If queue ended before
+     * process has finished, future fails with IOException.
+     * </p>
+     * 
+     * @return future exit value
+     */
+    public ListenableFuture<Integer> onExit();
+
+    /**
+     * Returns current status of process.
+     * 
+     * @return status
+     */
+    public EnqueuedProcessStatus getStatus();
 }
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static net.jsdpu.process.queue.QueueFrames.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes QueueFrames and passes their content to Listener.
+ * 
+ * <p>
+ * Payload is read into one reused buffer, so decoding doesn't allocate
+ * anything per frame.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.QueueFrames
+ */
+public class FrameDecoder {
+    private final DataInputStream source;
+    private final byte[] buffer;
+
+    /**
+     * Creates decoder.
+     * 
+     * @param source
+     *            stream with frames
+     */
+    public FrameDecoder(InputStream source) {
+        this.source = new DataInputStream(new BufferedInputStream(source, HEADER_SIZE
+                + MAX_PAYLOAD));
+        buffer = new byte[MAX_PAYLOAD];
+    }
+
+    /**
+     * Decodes frames until the end of source.
+     * 
+     * @param listener
+     *            listener receiving frames' content
+     * @throws IOException
+     *             thrown when source cannot be read or contains malformed
+     *             frame
+     */
+    public void decode(Listener listener) throws IOException {
+        while (decodeFrame(listener))
+            ;
+    }
+
+    /**
+     * Decodes single frame.
+     * 
+     * @param listener
+     *            listener receiving frame's content
+     * @return false if source ended before next frame
+     * @throws IOException
+     *             thrown when source cannot be read or contains malformed
+     *             frame
+     */
+    public boolean decodeFrame(Listener listener) throws IOException {
+        int type = source.read();
+        if (type < 0)
+            return false;
+        int process = source.readInt();
+        int value = source.readInt();
+        if (process < 0)
+            throw new IOException("Invalid process index: " + process);
+
+        switch (type) {
+        case START:
+            listener.started(process);
+            break;
+        case OUTPUT:
+        case ERROR:
+            if (value < 0 || value > MAX_PAYLOAD)
+                throw new IOException("Invalid payload length: " + value);
+            while (value > 0) {
+                int read = source.read(buffer, 0, value);
+                if (read < 0)
+                    throw new EOFException("Source ended in the middle of frame");
+                listener.write(process, (byte) type, buffer, 0, read);
+                value -= read;
+            }
+            break;
+        case EXIT:
+            listener.exited(process, value);
+            break;
+        default:
+            throw new IOException("Unknown frame type: " + type);
+        }
+        return true;
+    }
+
+    /**
+     * Receives content of decoded frames.
+     */
+    public static interface Listener {
+        /**
+         * Called for start frame.
+         * 
+         * @param process
+         *            index of process
+         * @throws IOException
+         *             thrown when listener fails to handle frame
+         */
+        void started(int process) throws IOException;
+
+        /**
+         * Called for (part of) output or error frame. Passed buffer is reused
+         * after the call returns.
+         * 
+         * @param process
+         *            index of process
+         * @param stream
+         *            {@link QueueFrames#OUTPUT} or {@link QueueFrames#ERROR}
+         * @param payload
+         *            payload's buffer
+         * @param offset
+         *            payload's offset
+         * @param length
+         *            payload's length
+         * @throws IOException
+         *             thrown when listener fails to handle frame
+         */
+        void write(int process, byte stream, byte[] payload, int offset, int length)
+                throws IOException;
+
+        /**
+         * Called for exit frame.
+         * 
+         * @param process
+         *            index of process
+         * @param exitValue
+         *            process' exit value
+         * @throws IOException
+         *             thrown when listener fails to handle frame
+         */
+        void exited(int process, int exitValue) throws IOException;
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static net.jsdpu.process.queue.QueueFrames.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes output and exit values of enqueued processes as QueueFrames.
+ * 
+ * <p>
+ * Used by QueueCaller and ElevatedBroker in child VM. Encoder is thread safe -
+ * each frame is written (and flushed) atomically, so standard and error
+ * outputs of process can be drained by separate threads.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.QueueFrames
+ */
+public class FrameEncoder {
+    private final DataOutputStream output;
+
+    /**
+     * Creates encoder.
+     * 
+     * @param output
+     *            target stream
+     */
+    public FrameEncoder(OutputStream output) {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, HEADER_SIZE
+                + MAX_PAYLOAD));
+    }
+
+    /**
+     * Writes start frame.
+     * 
+     * @param process
+     *            index of process
+     * @throws IOException
+     *             thrown when frame cannot be written
+     */
+    public void started(int process) throws IOException {
+        writeFrame(START, process, 0, null, 0);
+    }
+
+    /**
+     * Writes output or error frames - several, if payload is longer than
+     * {@link QueueFrames#MAX_PAYLOAD}.
+     * 
+     * @param process
+     *            index of process
+     * @param stream
+     *            {@link QueueFrames#OUTPUT} or {@link QueueFrames#ERROR}
+     * @param payload
+     *            payload's buffer
+     * @param offset
+     *            payload's offset
+     * @param length
+     *            payload's length
+     * @throws IOException
+     *             thrown when frame cannot be written
+     */
+    public void write(int process, byte stream, byte[] payload, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            int size = Math.min(length, MAX_PAYLOAD);
+            writeFrame(stream, process, size, payload, offset);
+            offset += size;
+            length -= size;
+        }
+    }
+
+    /**
+     * Writes exit frame.
+     * 
+     * @param process
+     *            index of process
+     * @param exitValue
+     *            process' exit value
+     * @throws IOException
+     *             thrown when frame cannot be written
+     */
+    public void exited(int process, int exitValue) throws IOException {
+        writeFrame(EXIT, process, exitValue, null, 0);
+    }
+
+    /**
+     * Returns OutputStream writing everything as frames of given process and
+     * stream.
+     * 
+     * @param process
+     *            index of process
+     * @param stream
+     *            {@link QueueFrames#OUTPUT} or {@link QueueFrames#ERROR}
+     * @return stream
+     */
+    public OutputStream getStream(final int process, final byte stream) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                FrameEncoder.this.write(process, stream, b, off, len);
+            }
+        };
+    }
+
+    private synchronized void writeFrame(byte type, int process, int value, byte[] payload,
+            int offset) throws IOException {
+        output.writeByte(type);
+        output.writeInt(process);
+        output.writeInt(value);
+        if (payload != null)
+            output.write(payload, offset, value);
+        output.flush();
+    }
+}
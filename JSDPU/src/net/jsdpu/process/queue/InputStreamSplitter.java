@@ -1,34 +1,155 @@
 package net.jsdpu.process.queue;
 
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static net.jsdpu.process.queue.EnqueuedProcessStatus.*;
+import static net.jsdpu.process.queue.QueueFrames.ERROR;
+
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
-class InputStreamSplitter implements Splitter<InputStream> {
+/**
+ * Splits QueueFrames read from one source into standard and error streams of
+ * each enqueued process.
+ * 
+ * <p>
+ * Frames are decoded by one task run in SplitterExecutor. Split streams grow
+ * as needed, so decoding never waits for a reader - output of one process
+ * doesn't block exit values of processes enqueued after it, and streams can
+ * be read in any order. Output that isn't read is kept in memory until its
+ * stream is closed.
+ * </p>
+ * 
+ * <p>
+ * Returned codes are kept in futures completed by the same thread, so any
+ * number of processes can be awaited without additional threads. If source
+ * ends before process' exit frame, its future fails with IOException.
+ * Statuses of processes are updated only on start and exit frames, and can be
+ * read by any thread without locking.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.FrameDecoder
+ */
+class InputStreamSplitter implements Splitter<InputStream>, FrameDecoder.Listener {
 	private final InputStream source;
-	private final ProcessInputStream[] targets;
-	private final Integer[] returnedCodes;
+	private final ProcessInputStream[] outputs;
+	private final ProcessInputStream[] errors;
+	private final List<SettableFuture<Integer>> returnedCodes;
+	private final AtomicReferenceArray<EnqueuedProcessStatus> statuses;
 
 	InputStreamSplitter(InputStream source, int expectedInputs) {
 		this.source = source;
-		targets = new ProcessInputStream[expectedInputs];
+		outputs = new ProcessInputStream[expectedInputs];
+		errors = new ProcessInputStream[expectedInputs];
+		for (int i = 0; i < expectedInputs; i++) {
+			outputs[i] = new ProcessInputStream();
+			errors[i] = new ProcessInputStream();
+		}
+		returnedCodes = new ArrayList<SettableFuture<Integer>>(expectedInputs);
 		for (int i = 0; i < expectedInputs; i++)
-			targets[i] = new ProcessInputStream();
-		returnedCodes = new Integer[expectedInputs];
+			returnedCodes.add(SettableFuture.<Integer> create());
+		statuses = new AtomicReferenceArray<EnqueuedProcessStatus>(expectedInputs);
+		for (int i = 0; i < expectedInputs; i++)
+			statuses.set(i, PENDING);
 	}
 
 	@Override
 	public void start() {
-		new Thread(
-				new InputStreamSplitterThread(source, targets, returnedCodes))
-				.start();
+		SplitterExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					new FrameDecoder(source).decode(InputStreamSplitter.this);
+				} catch (IOException e) {
+					// source closed or broken - treated as its end
+				} finally {
+					finish();
+				}
+			}
+		});
 	}
 
 	@Override
 	public Integer[] getReturnedCodes() {
-		return returnedCodes;
+		Integer[] codes = new Integer[returnedCodes.size()];
+		for (int i = 0; i < codes.length; i++)
+			if (returnedCodes.get(i).isDone())
+				codes[i] = getCode(returnedCodes.get(i));
+		return codes;
 	}
 
 	@Override
 	public InputStream[] getSplittedStreams() {
-		return targets;
+		return outputs;
+	}
+
+	@Override
+	public InputStream[] getSplittedErrorStreams() {
+		return errors;
+	}
+
+	@Override
+	public Integer waitForReturnedCode(int index) throws InterruptedException {
+		try {
+			return returnedCodes.get(index).get();
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public ListenableFuture<Integer> getReturnedCode(int index) {
+		return returnedCodes.get(index);
+	}
+
+	EnqueuedProcessStatus getStatus(int index) {
+		return statuses.get(index);
+	}
+
+	@Override
+	public void started(int process) {
+		if (process < outputs.length)
+			statuses.compareAndSet(process, PENDING, RUNNING);
+	}
+
+	@Override
+	public void write(int process, byte stream, byte[] payload, int offset, int length) {
+		if (process < outputs.length)
+			(stream == ERROR ? errors : outputs)[process].add(payload, offset, length);
+	}
+
+	@Override
+	public void exited(int process, int exitValue) {
+		if (process >= outputs.length)
+			return;
+		statuses.set(process, FINISHED);
+		returnedCodes.get(process).set(exitValue);
+		outputs[process].finish();
+		errors[process].finish();
+	}
+
+	private void finish() {
+		IOException missingExitFrame = new IOException(
+				"Queue ended before process has finished");
+		for (int i = 0; i < outputs.length; i++) {
+			outputs[i].finish();
+			errors[i].finish();
+			statuses.set(i, FINISHED);
+			returnedCodes.get(i).setException(missingExitFrame);
+		}
+	}
+
+	private Integer getCode(ListenableFuture<Integer> returnedCode) {
+		try {
+			return getUninterruptibly(returnedCode);
+		} catch (ExecutionException e) {
+			return null;
+		}
 	}
 }
@@ -2,50 +2,204 @@ package net.jsdpu.process.queue;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * InputStream fed by single producer (splitter thread) and read by single
+ * consumer.
+ * 
+ * <p>
+ * Data is kept in ring buffer, which producer doubles when it's full - up to
+ * maximal capacity, above which producer blocks. Consumer blocks when buffer
+ * is empty. Neither of them takes a lock - positions and grown buffer are
+ * published through volatile fields, and waiting thread is parked until the
+ * other side makes progress.
+ * </p>
+ * 
+ * <p>
+ * Splitter's streams grow up to {@link #MAX_CAPACITY}, so that output nobody
+ * reads yet is kept in memory instead of blocking frames of other processes
+ * (their exit values in particular).
+ * </p>
+ * 
+ * <p>
+ * Producer marks the end of data with {@link #finish()}. Consumer's
+ * {@link #close()} discards remaining and future data, so that producer never
+ * blocks on a stream nobody reads.
+ * </p>
+ */
 class ProcessInputStream extends InputStream {
-	private final LinkedList<Integer> readChars;
-	private boolean closed;
-	private final Object mutex;
+	static final int DEFAULT_CAPACITY = 64 * 1024;
+	static final int MAX_CAPACITY = 1 << 30;
+	private static final int SPINS = 16;
+
+	private final int maxCapacity;
+	private volatile byte[] buffer;
+
+	private volatile long writePosition;
+	private volatile long readPosition;
+	private volatile boolean finished;
+	private volatile boolean closed;
+
+	private volatile Thread waitingProducer;
+	private volatile Thread waitingConsumer;
 
 	ProcessInputStream() {
-		readChars = new LinkedList<Integer>();
+		this(DEFAULT_CAPACITY, MAX_CAPACITY);
+	}
+
+	ProcessInputStream(int capacity) {
+		this(capacity, capacity);
+	}
+
+	ProcessInputStream(int capacity, int maxCapacity) {
+		buffer = new byte[roundCapacity(capacity)];
+		this.maxCapacity = Math.max(roundCapacity(maxCapacity), buffer.length);
+		writePosition = 0;
+		readPosition = 0;
+		finished = false;
 		closed = false;
-		mutex = new Object();
 	}
 
 	void add(int nextChar) {
-		readChars.addLast(nextChar);
-		synchronized (mutex) {
-			mutex.notify();
+		long write = writePosition;
+		byte[] buffer = this.buffer;
+		if (closed || buffer.length - (write - readPosition) == 0) {
+			add(new byte[] { (byte) nextChar }, 0, 1);
+			return;
 		}
+		buffer[(int) (write & (buffer.length - 1))] = (byte) nextChar;
+		writePosition = write + 1;
+		unpark(waitingConsumer);
+	}
+
+	void add(byte[] bytes, int offset, int length) {
+		while (length > 0) {
+			long write = writePosition;
+			byte[] buffer = this.buffer;
+			int free;
+			while ((free = (int) (buffer.length - (write - readPosition))) == 0) {
+				if (closed)
+					return;
+				if (buffer.length < maxCapacity) {
+					buffer = grow(buffer, write);
+					continue;
+				}
+				waitingProducer = Thread.currentThread();
+				if (buffer.length - (write - readPosition) == 0 && !closed)
+					LockSupport.park(this);
+				waitingProducer = null;
+				if (Thread.interrupted()) {
+					closed = true;
+					return;
+				}
+			}
+			if (closed)
+				return;
+
+			int copied = Math.min(free, length);
+			int start = (int) (write & (buffer.length - 1));
+			int firstPart = Math.min(copied, buffer.length - start);
+			System.arraycopy(bytes, offset, buffer, start, firstPart);
+			System.arraycopy(bytes, offset + firstPart, buffer, 0, copied - firstPart);
+			writePosition = write + copied;
+			unpark(waitingConsumer);
+
+			offset += copied;
+			length -= copied;
+		}
+	}
+
+	void finish() {
+		finished = true;
+		unpark(waitingConsumer);
 	}
 
 	@Override
-	public int available() {
-		return readChars.size();
+	public int available() throws IOException {
+		if (closed)
+			throw new IOException("Stream closed");
+		return (int) (writePosition - readPosition);
 	}
 
 	@Override
 	public void close() {
 		closed = true;
+		unpark(waitingProducer);
 	}
 
 	@Override
 	public int read() throws IOException {
-		if (!closed && readChars.isEmpty())
-			synchronized (mutex) {
-				try {
-					mutex.wait();
-				} catch (InterruptedException e) {
-					throw new IOException(e);
-				}
-			}
+		byte[] single = new byte[1];
+		return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+	}
 
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || length > bytes.length - offset)
+			throw new IndexOutOfBoundsException();
 		if (closed)
-			return -1;
+			throw new IOException("Stream closed");
+		if (length == 0)
+			return 0;
+
+		long read = readPosition;
+		int stored;
+		int spins = 0;
+		while ((stored = (int) (writePosition - read)) == 0) {
+			if (spins++ < SPINS) {
+				Thread.yield();
+				continue;
+			}
+			if (finished) {
+				if (writePosition - read == 0)
+					return -1;
+				continue;
+			}
+			waitingConsumer = Thread.currentThread();
+			if (writePosition - read == 0 && !finished)
+				LockSupport.park(this);
+			waitingConsumer = null;
+			if (Thread.interrupted())
+				throw new InterruptedIOException();
+			if (closed)
+				throw new IOException("Stream closed");
+		}
+
+		// grown buffer is published before positions it holds, so it's read after them
+		byte[] buffer = this.buffer;
+		int copied = Math.min(stored, length);
+		int start = (int) (read & (buffer.length - 1));
+		int firstPart = Math.min(copied, buffer.length - start);
+		System.arraycopy(buffer, start, bytes, offset, firstPart);
+		System.arraycopy(buffer, 0, bytes, offset + firstPart, copied - firstPart);
+		readPosition = read + copied;
+		unpark(waitingProducer);
+		return copied;
+	}
+
+	private byte[] grow(byte[] buffer, long write) {
+		byte[] grown = new byte[buffer.length << 1];
+		long position = readPosition;
+		while (position < write) {
+			int from = (int) (position & (buffer.length - 1));
+			int to = (int) (position & (grown.length - 1));
+			int copied = (int) Math.min(write - position,
+					Math.min(buffer.length - from, grown.length - to));
+			System.arraycopy(buffer, from, grown, to, copied);
+			position += copied;
+		}
+		this.buffer = grown;
+		return grown;
+	}
+
+	private static int roundCapacity(int capacity) {
+		return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+	}
 
-		return readChars.pollFirst();
+	private static void unpark(Thread thread) {
+		if (thread != null)
+			LockSupport.unpark(thread);
 	}
-}
\ No newline at end of file
+}
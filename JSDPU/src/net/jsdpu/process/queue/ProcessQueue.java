@@ -17,79 +17,170 @@ package net.jsdpu.process.queue;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
 
 /**
- * TODO
+ * Queue of processes run as one process, created by ProcessQueueBuilder.
+ * 
+ * <p>
+ * Processes are returned in order in which they were enqueued. Queue cannot
+ * be modified once it's started.
+ * </p>
+ * 
+ * <p>
+ * Queue is thread safe and can be iterated without any locking. Statuses of
+ * processes are updated as queue runs, so progress read from the queue is
+ * weakly consistent - it reflects the state at some moment during the call.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.ProcessQueueBuilder
  */
 public class ProcessQueue implements Collection<EnqueuedProcess> {
+    private final List<EnqueuedProcess> processes;
+
+    /**
+     * Creates empty queue.
+     */
+    ProcessQueue() {
+        this(ImmutableList.<EnqueuedProcess> of());
+    }
+
+    /**
+     * Creates queue.
+     * 
+     * @param processes
+     *            enqueued processes
+     */
+    ProcessQueue(List<EnqueuedProcess> processes) {
+        this.processes = ImmutableList.copyOf(processes);
+    }
+
+    /**
+     * Returns statuses of processes, in order in which they were enqueued.
+     * 
+     * @return statuses' snapshot
+     */
+    public List<EnqueuedProcessStatus> getStatuses() {
+        ImmutableList.Builder<EnqueuedProcessStatus> statuses = ImmutableList.builder();
+        for (EnqueuedProcess process : processes)
+            statuses.add(process.getStatus());
+        return statuses.build();
+    }
+
+    /**
+     * Returns number of processes waiting for their turn.
+     * 
+     * @return number of pending processes
+     */
+    public int getPendingCount() {
+        return count(EnqueuedProcessStatus.PENDING);
+    }
+
+    /**
+     * Returns number of currently run processes.
+     * 
+     * @return number of running processes
+     */
+    public int getRunningCount() {
+        return count(EnqueuedProcessStatus.RUNNING);
+    }
+
+    /**
+     * Returns number of finished processes.
+     * 
+     * @return number of finished processes
+     */
+    public int getFinishedCount() {
+        return count(EnqueuedProcessStatus.FINISHED);
+    }
+
+    /**
+     * Whether all processes have finished.
+     * 
+     * @return true if there are no pending nor running processes
+     */
+    public boolean isFinished() {
+        return getFinishedCount() == processes.size();
+    }
+
     @Override
     public Iterator<EnqueuedProcess> iterator() {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        return processes.iterator();
     }
 
     @Override
     public int size() {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        return processes.size();
     }
 
     @Override
     public boolean isEmpty() {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        return processes.isEmpty();
     }
 
     @Override
     public boolean contains(Object o) {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        return processes.contains(o);
     }
 
     @Override
     public Object[] toArray() {
-        // TODO Auto-generated method stub
-        return null;
+        return processes.toArray();
     }
 
     @Override
     public <T> T[] toArray(T[] a) {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        return processes.toArray(a);
     }
 
     @Override
     public boolean add(EnqueuedProcess e) {
         throw new UnsupportedOperationException(
-                "Started process queue cannot have any process removed");
+                "Started process queue is immutable");
     }
 
     @Override
     public boolean remove(Object o) {
         throw new UnsupportedOperationException(
-                "Started process queue cannot have any process removed");
+                "Started process queue is immutable");
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        return processes.containsAll(c);
     }
 
     @Override
     public boolean addAll(Collection<? extends EnqueuedProcess> c) {
         throw new UnsupportedOperationException(
-                "Started process queue cannot have any process removed");
+                "Started process queue is immutable");
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
         throw new UnsupportedOperationException(
-                "Started process queue cannot have any process removed");
+                "Started process queue is immutable");
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
         throw new UnsupportedOperationException(
-                "Started process queue cannot have any process removed");
+                "Started process queue is immutable");
     }
 
     @Override
     public void clear() {
-        throw new UnsupportedOperationException("Not yet implemented!");
+        throw new UnsupportedOperationException(
+                "Started process queue is immutable");
+    }
+
+    private int count(EnqueuedProcessStatus status) {
+        int count = 0;
+        for (EnqueuedProcess process : processes)
+            if (process.getStatus() == status)
+                count++;
+        return count;
     }
 }
@@ -16,10 +16,20 @@
 package net.jsdpu.process.queue;
 
 import static java.util.Arrays.asList;
+import static net.jsdpu.process.queue.QueueCaller.prepareCommand;
+import static net.jsdpu.process.queue.QueueEntry.writeEntries;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.jsdpu.process.elevated.ElevatedProcessBuilder;
 
@@ -100,10 +110,68 @@ public class ProcessQueueBuilder {
     /**
      * Returns process queue.
      * 
-     * @return ProcessQueue
+     * <p>
+     * All enqueued processes are run one after another in one child VM
+     * (QueueCaller). Elevated processes keep their place in queue, but are run
+     * in one elevation session per ElevatedProcessBuilder class. Each process
+     * is represented by EnqueuedProcess with its own streams and exit value.
+     * Since all of them are split from one stream, they should be read
+     * concurrently.
+     * </p>
+     * 
+     * @see net.jsdpu.process.queue.QueueCaller
+     * 
+     * @return ProcessQueue, or ElevatedProcessQueue if any process is elevated
+     * @throws IOException
+     *             thrown when child VM cannot be started
+     * @throws IllegalArgumentException
+     *             thrown when any of enqueued builders redirects process'
+     *             streams (only redirectErrorStream is supported)
      */
-    public ProcessQueue build() {
-        // TODO: write it one day
-        throw new UnsupportedOperationException("Not yet implemented!");
+    public ProcessQueue build() throws IOException {
+        if (processBuilders.isEmpty())
+            return new ProcessQueue();
+
+        Map<ProcessBuilder, ElevatedProcessBuilder> elevated;
+        elevated = new IdentityHashMap<ProcessBuilder, ElevatedProcessBuilder>();
+        for (Map.Entry<ElevatedProcessBuilder, ProcessBuilder> entry : elevatedProcessBuilders
+                .entrySet())
+            elevated.put(entry.getValue(), entry.getKey());
+
+        List<QueueEntry> entries = new ArrayList<QueueEntry>();
+        for (ProcessBuilder processBuilder : processBuilders)
+            entries.add(elevated.containsKey(processBuilder) ? QueueEntry.of(elevated
+                    .get(processBuilder)) : QueueEntry.of(processBuilder));
+
+        Process caller = new ProcessBuilder(prepareCommand()).redirectError(Redirect.INHERIT)
+                .start();
+        DataOutputStream input = new DataOutputStream(new BufferedOutputStream(
+                caller.getOutputStream()));
+        writeEntries(input, entries);
+        input.close();
+
+        InputStreamSplitter splitter = new InputStreamSplitter(caller.getInputStream(),
+                entries.size());
+        splitter.start();
+
+        List<EnqueuedProcess> processes = new ArrayList<EnqueuedProcess>();
+        List<EnqueuedProcess> elevatedProcesses = new ArrayList<EnqueuedProcess>();
+        Set<String> elevations = new HashSet<String>();
+        int separateElevations = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            EnqueuedProcess process = new SplittedEnqueuedProcess(splitter, i);
+            processes.add(process);
+            if (entries.get(i).isElevated()) {
+                elevatedProcesses.add(process);
+                // builders not forwarding input elevate each entry separately
+                if (elevated.get(processBuilders.get(i)).isInputForwarded())
+                    elevations.add(entries.get(i).elevation);
+                else
+                    separateElevations++;
+            }
+        }
+        return elevatedProcesses.isEmpty() ? new ProcessQueue(processes)
+                : new ElevatedProcessQueue(processes, elevatedProcesses, elevations.size()
+                        + separateElevations);
     }
 }
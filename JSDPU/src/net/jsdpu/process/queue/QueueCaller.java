@@ -0,0 +1,185 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.lang.System.*;
+import static net.jsdpu.JavaSystemUtils.createCommandToRunHelper;
+import static net.jsdpu.process.queue.QueueEntry.readEntries;
+import static net.jsdpu.process.queue.QueueFrames.ERROR;
+import static net.jsdpu.process.queue.QueueFrames.OUTPUT;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class used to run process queue as one process.
+ * 
+ * <p>
+ * Reads batches of QueueEntries from its standard input until it's closed, and
+ * runs them one after another. Standard and error outputs of each process, as
+ * well as its exit value, are written into standard output as QueueFrames, so
+ * that InputStreamSplitter can split them back. Error output of QueueCaller
+ * itself is used only for diagnostics.
+ * </p>
+ * 
+ * <p>
+ * Elevated entries are passed into ElevationSession - one elevated QueueCaller
+ * kept running until the end of queue for each ElevatedProcessBuilder class -
+ * so that elevation is requested once, however elevated entries are spread
+ * over the queue.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.ProcessQueueBuilder
+ * @see net.jsdpu.process.queue.ElevationSession
+ * @see net.jsdpu.process.queue.QueueFrames
+ */
+public class QueueCaller {
+    /**
+     * Exit value reported for processes that couldn't be started.
+     */
+    static final int FAILED_TO_START = 127;
+
+    /**
+     * Size of buffer used for draining streams.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Generates command that will run QueueCaller.
+     * 
+     * @return command for ProcessBuilder/ElevatedProcessBuilder
+     */
+    static List<String> prepareCommand() {
+        List<String> command = new ArrayList<String>();
+        for (String argument : createCommandToRunHelper(QueueCaller.class,
+                new ArrayList<String>(), new ArrayList<String>()))
+            command.add(argument);
+        return command;
+    }
+
+    /**
+     * Runs entries read from standard input.
+     * 
+     * @param args
+     *            ignored
+     */
+    public static void main(String[] args) {
+        FrameEncoder encoder = new FrameEncoder(new FileOutputStream(FileDescriptor.out));
+        // nothing else may write into frames' stream
+        setOut(err);
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+        Map<String, ElevationSession> sessions = new HashMap<String, ElevationSession>();
+        try {
+            int offset = 0;
+            List<QueueEntry> entries;
+            while ((entries = readEntries(input)) != null) {
+                int i = 0;
+                while (i < entries.size()) {
+                    if (entries.get(i).isElevated()) {
+                        String elevation = entries.get(i).elevation;
+                        int end = i;
+                        while (end < entries.size() && elevation.equals(entries.get(end).elevation))
+                            end++;
+                        if (!sessions.containsKey(elevation))
+                            sessions.put(elevation, new ElevationSession(elevation));
+                        sessions.get(elevation).run(encoder, offset + i, entries.subList(i, end));
+                        i = end;
+                    } else {
+                        run(encoder, offset + i, entries.get(i).toProcessBuilder());
+                        i++;
+                    }
+                }
+                offset += entries.size();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (ElevationSession session : sessions.values())
+                session.close();
+        }
+    }
+
+    /**
+     * Runs single process, writing its streams and exit value as frames.
+     * 
+     * @param encoder
+     *            encoder of frames
+     * @param index
+     *            index of process in queue
+     * @param processBuilder
+     *            builder of process
+     * @throws IOException
+     *             thrown when frames cannot be written
+     */
+    static void run(FrameEncoder encoder, int index, ProcessBuilder processBuilder)
+            throws IOException {
+        int exitValue;
+        try {
+            final Process process = processBuilder.start();
+            process.getOutputStream().close();
+            encoder.started(index);
+
+            final OutputStream error = encoder.getStream(index, ERROR);
+            Thread errorDrainer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain(process.getErrorStream(), error);
+                }
+            });
+            errorDrainer.start();
+            drain(process.getInputStream(), encoder.getStream(index, OUTPUT));
+            errorDrainer.join();
+
+            exitValue = process.waitFor();
+        } catch (IOException | InterruptedException e) {
+            byte[] message = (e + "\n").getBytes();
+            encoder.write(index, ERROR, message, 0, message.length);
+            exitValue = FAILED_TO_START;
+        }
+        encoder.exited(index, exitValue);
+    }
+
+    /**
+     * Copies stream until its end.
+     * 
+     * @param source
+     *            source stream
+     * @param target
+     *            target stream
+     */
+    static void drain(InputStream source, OutputStream target) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = source.read(buffer)) >= 0) {
+                target.write(buffer, 0, read);
+                target.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
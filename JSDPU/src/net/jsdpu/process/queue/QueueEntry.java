@@ -0,0 +1,265 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.jsdpu.process.elevated.ElevatedProcessBuilder;
+
+/**
+ * Description of single process run by QueueCaller.
+ * 
+ * <p>
+ * Contains everything needed to recreate ProcessBuilder in child VM. Entries
+ * are passed to QueueCaller through its standard input, in one or more
+ * batches.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.QueueCaller
+ */
+final class QueueEntry {
+    final List<String> command;
+    final File directory;
+    final Map<String, String> environment;
+    final boolean redirectErrorStream;
+    final String elevation;
+
+    /**
+     * Creates entry.
+     * 
+     * @param command
+     *            command to run
+     * @param directory
+     *            working directory (null for inherited one)
+     * @param environment
+     *            environment of process
+     * @param redirectErrorStream
+     *            whether error stream should be merged with output
+     * @param elevation
+     *            name of ElevatedProcessBuilder class used for elevation (null
+     *            if process shouldn't be elevated)
+     */
+    QueueEntry(List<String> command, File directory, Map<String, String> environment,
+            boolean redirectErrorStream, String elevation) {
+        this.command = command;
+        this.directory = directory;
+        this.environment = environment;
+        this.redirectErrorStream = redirectErrorStream;
+        this.elevation = elevation;
+    }
+
+    /**
+     * Creates entry for ProcessBuilder.
+     * 
+     * @param processBuilder
+     *            builder of process
+     * @return entry
+     * @throws IllegalArgumentException
+     *             thrown when builder redirects any of process' streams
+     */
+    static QueueEntry of(ProcessBuilder processBuilder) {
+        checkRedirects(processBuilder.redirectInput(), processBuilder.redirectOutput(),
+                processBuilder.redirectError());
+        return new QueueEntry(processBuilder.command(), processBuilder.directory(),
+                processBuilder.environment(), processBuilder.redirectErrorStream(), null);
+    }
+
+    /**
+     * Creates entry for ElevatedProcessBuilder.
+     * 
+     * @param elevatedProcessBuilder
+     *            builder of elevated process
+     * @return entry
+     * @throws IllegalArgumentException
+     *             thrown when builder redirects any of process' streams
+     */
+    static QueueEntry of(ElevatedProcessBuilder elevatedProcessBuilder) {
+        checkRedirects(elevatedProcessBuilder.getRedirectInput(),
+                elevatedProcessBuilder.getRedirectOutput(),
+                elevatedProcessBuilder.getRedirectError());
+        return new QueueEntry(elevatedProcessBuilder.getCommand(),
+                elevatedProcessBuilder.getDirectory(), elevatedProcessBuilder.getEnvironment(),
+                elevatedProcessBuilder.isRedirectErrorStream(), elevatedProcessBuilder.getClass()
+                        .getName());
+    }
+
+    /**
+     * Checks that process' streams aren't redirected.
+     * 
+     * <p>
+     * Queued process' streams are always passed through QueueCaller's output
+     * (which is also why inheriting them would break the queue), so redirects
+     * cannot be recreated in child VM. Only {@link Redirect#PIPE} is accepted
+     * - redirectErrorStream is supported separately.
+     * </p>
+     * 
+     * @param input
+     *            input redirect
+     * @param output
+     *            output redirect
+     * @param error
+     *            error redirect
+     * @throws IllegalArgumentException
+     *             thrown when any of streams is redirected
+     */
+    private static void checkRedirects(Redirect input, Redirect output, Redirect error) {
+        if (input != Redirect.PIPE || output != Redirect.PIPE || error != Redirect.PIPE)
+            throw new IllegalArgumentException("Enqueued process cannot redirect streams "
+                    + "(input: " + input + ", output: " + output + ", error: " + error + ")");
+    }
+
+    /**
+     * Returns whether process should be elevated.
+     * 
+     * @return true if process should be elevated
+     */
+    boolean isElevated() {
+        return elevation != null;
+    }
+
+    /**
+     * Returns copy of entry, that isn't elevated (e.g. when passing it into
+     * already elevated VM).
+     * 
+     * @return not elevated entry
+     */
+    QueueEntry withoutElevation() {
+        return new QueueEntry(command, directory, environment, redirectErrorStream, null);
+    }
+
+    /**
+     * Creates ProcessBuilder described by entry.
+     * 
+     * @return ProcessBuilder
+     */
+    ProcessBuilder toProcessBuilder() {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(directory);
+        processBuilder.environment().clear();
+        processBuilder.environment().putAll(environment);
+        processBuilder.redirectErrorStream(redirectErrorStream);
+        return processBuilder;
+    }
+
+    /**
+     * Writes entries into stream.
+     * 
+     * @param output
+     *            target stream
+     * @param entries
+     *            entries to write
+     * @throws IOException
+     *             thrown when entries cannot be written
+     */
+    static void writeEntries(DataOutputStream output, List<QueueEntry> entries)
+            throws IOException {
+        output.writeInt(entries.size());
+        for (QueueEntry entry : entries) {
+            output.writeInt(entry.command.size());
+            for (String argument : entry.command)
+                writeString(output, argument);
+            writeString(output, entry.directory != null ? entry.directory.getPath() : null);
+            output.writeInt(entry.environment.size());
+            for (Map.Entry<String, String> variable : entry.environment.entrySet()) {
+                writeString(output, variable.getKey());
+                writeString(output, variable.getValue());
+            }
+            output.writeBoolean(entry.redirectErrorStream);
+            writeString(output, entry.elevation);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads entries from stream.
+     * 
+     * @param input
+     *            source stream
+     * @return read entries, or null if stream ended before next entries
+     * @throws IOException
+     *             thrown when entries cannot be read
+     */
+    static List<QueueEntry> readEntries(DataInputStream input) throws IOException {
+        int size;
+        try {
+            size = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        List<QueueEntry> entries = new ArrayList<QueueEntry>(size);
+        for (int i = 0; i < size; i++) {
+            int argumentsNumber = input.readInt();
+            List<String> command = new ArrayList<String>(argumentsNumber);
+            for (int j = 0; j < argumentsNumber; j++)
+                command.add(readString(input));
+            String directory = readString(input);
+            int variablesNumber = input.readInt();
+            Map<String, String> environment = new HashMap<String, String>();
+            for (int j = 0; j < variablesNumber; j++)
+                environment.put(readString(input), readString(input));
+            boolean redirectErrorStream = input.readBoolean();
+            String elevation = readString(input);
+            entries.add(new QueueEntry(command, directory != null ? new File(directory) : null,
+                    environment, redirectErrorStream, elevation));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes nullable string.
+     * 
+     * @param output
+     *            target stream
+     * @param string
+     *            string to write
+     * @throws IOException
+     *             thrown when string cannot be written
+     */
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            byte[] bytes = string.getBytes("UTF-8");
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Reads nullable string.
+     * 
+     * @param input
+     *            source stream
+     * @return read string
+     * @throws IOException
+     *             thrown when string cannot be read
+     */
+    private static String readString(DataInputStream input) throws IOException {
+        if (!input.readBoolean())
+            return null;
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
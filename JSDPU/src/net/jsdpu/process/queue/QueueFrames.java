@@ -0,0 +1,74 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+/**
+ * Binary protocol used by QueueCaller for passing output and exit values of
+ * enqueued processes back to parent VM. ElevatedBroker uses it the same way
+ * for commands of its batches.
+ * 
+ * <p>
+ * Each frame is encoded as: type (1 byte), index of process in queue (int),
+ * value (int) and payload. For output and error frames value is length of
+ * payload, for exit frame value is exit value, and start frame has value 0.
+ * Only output and error frames have payload, and it's never longer than
+ * {@link #MAX_PAYLOAD}.
+ * </p>
+ * 
+ * <p>
+ * Since output is never interpreted, processes can print anything, and since
+ * each frame carries index of its process, standard and error outputs of
+ * several processes can share one stream.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.FrameEncoder
+ * @see net.jsdpu.process.queue.FrameDecoder
+ * @see net.jsdpu.process.executors.ElevatedBroker
+ */
+public final class QueueFrames {
+    /**
+     * Frame send when process has started.
+     */
+    public static final byte START = 1;
+    /**
+     * Frame with part of process' standard output.
+     */
+    public static final byte OUTPUT = 2;
+    /**
+     * Frame with part of process' error output.
+     */
+    public static final byte ERROR = 3;
+    /**
+     * Frame with process' exit value - last frame of process.
+     */
+    public static final byte EXIT = 4;
+
+    /**
+     * Size of frame without payload.
+     */
+    public static final int HEADER_SIZE = 9;
+
+    /**
+     * Maximal length of single frame's payload.
+     */
+    public static final int MAX_PAYLOAD = 32 * 1024;
+
+    /**
+     * Static class.
+     */
+    private QueueFrames() {
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static net.jsdpu.process.queue.QueueCaller.FAILED_TO_START;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * EnqueuedProcess which streams and exit value are split from output of
+ * QueueCaller.
+ * 
+ * <p>
+ * Enqueued processes don't accept input - their standard input is closed.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.InputStreamSplitter
+ */
+class SplittedEnqueuedProcess implements EnqueuedProcess {
+    private final InputStreamSplitter splitter;
+    private final int index;
+
+    /**
+     * Creates process.
+     * 
+     * @param splitter
+     *            splitter of QueueCaller's output
+     * @param index
+     *            index of process in queue
+     */
+    SplittedEnqueuedProcess(InputStreamSplitter splitter, int index) {
+        this.splitter = splitter;
+        this.index = index;
+    }
+
+    @Override
+    public int getExitValue() {
+        if (!onExit().isDone())
+            throw new IllegalThreadStateException("Process hasn't finished yet");
+        return waitFor();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return splitter.getSplittedStreams()[index];
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return splitter.getSplittedErrorStreams()[index];
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Enqueued process doesn't accept input");
+            }
+        };
+    }
+
+    @Override
+    public int waitFor() {
+        try {
+            return getUninterruptibly(onExit());
+        } catch (ExecutionException e) {
+            return FAILED_TO_START;
+        }
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            onExit().get(timeout, unit);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // queue ended - process won't run anymore
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !onExit().isDone();
+    }
+
+    @Override
+    public ListenableFuture<Integer> onExit() {
+        return splitter.getReturnedCode(index);
+    }
+
+    @Override
+    public EnqueuedProcessStatus getStatus() {
+        return splitter.getStatus(index);
+    }
+}
@@ -2,13 +2,18 @@ package net.jsdpu.process.queue;
 
 import java.io.Closeable;
 
-interface Splitter<Stream extends Closeable> {
-	static final String PREFIX = "FIN:";
-	static final char SEPARATOR = '\n';
+import com.google.common.util.concurrent.ListenableFuture;
 
+interface Splitter<Stream extends Closeable> {
 	void start();
 
 	Stream[] getSplittedStreams();
 
+	Stream[] getSplittedErrorStreams();
+
 	Integer[] getReturnedCodes();
+
+	Integer waitForReturnedCode(int index) throws InterruptedException;
+
+	ListenableFuture<Integer> getReturnedCode(int index);
 }
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.lang.System.getProperty;
+import static net.jsdpu.logger.Logger.getLogger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jsdpu.logger.Logger;
+
+/**
+ * Executor shared by all InputStreamSplitters.
+ * 
+ * <p>
+ * Each splitter runs in its own thread as long as its queue runs - in virtual
+ * thread where runtime supports them, or else in named daemon thread. Threads
+ * are taken from shared pool bounded by {@link #THREADS_PROPERTY}, that reuses
+ * them and releases them after being idle for a while.
+ * </p>
+ * 
+ * <p>
+ * Splitters are never queued: a splitter waiting for a free thread would stop
+ * draining its processes' output, so its queue would hang until another
+ * queue ended. When all pooled threads are busy splitter runs in dedicated
+ * thread instead, which ends with it. {@link #getOverflowCount()} shows how
+ * often pool is too small, taking place of a queue length.
+ * </p>
+ * 
+ * @see net.jsdpu.process.queue.InputStreamSplitter
+ */
+public final class SplitterExecutor {
+    private static final Logger logger = getLogger(SplitterExecutor.class);
+
+    /**
+     * System property setting maximal number of pooled threads used by
+     * splitters (by default 64).
+     */
+    public static final String THREADS_PROPERTY = "net.jsdpu.queue.splitter.threads";
+
+    /**
+     * System property disabling virtual threads when set to false.
+     */
+    public static final String VIRTUAL_PROPERTY = "net.jsdpu.queue.splitter.virtual";
+
+    /**
+     * Prefix of splitters' threads' names.
+     */
+    static final String THREAD_NAME = "InputStreamSplitter-";
+
+    private static final int DEFAULT_THREADS = 64;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger overflowActive = new AtomicInteger();
+    private static final AtomicInteger overflowCompleted = new AtomicInteger();
+
+    private static ThreadPoolExecutor executor;
+    private static boolean virtual;
+
+    /**
+     * Static class.
+     */
+    private SplitterExecutor() {
+    }
+
+    /**
+     * Runs splitter's task.
+     * 
+     * @param task
+     *            task to run
+     */
+    static void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    /**
+     * Returns number of splitters currently running (both pooled and
+     * overflowing).
+     * 
+     * @return number of active splitters
+     */
+    public static int getActiveCount() {
+        return getExecutor().getActiveCount() + overflowActive.get();
+    }
+
+    /**
+     * Returns number of splitters currently running in dedicated threads,
+     * because all pooled threads were busy when they started.
+     * 
+     * @return number of overflowing splitters
+     */
+    public static int getOverflowCount() {
+        return overflowActive.get();
+    }
+
+    /**
+     * Returns number of splitters that have already finished.
+     * 
+     * @return number of completed splitters
+     */
+    public static long getCompletedCount() {
+        return getExecutor().getCompletedTaskCount() + overflowCompleted.get();
+    }
+
+    /**
+     * Whether splitters run in virtual threads.
+     * 
+     * @return true if virtual threads are used
+     */
+    public static boolean isVirtual() {
+        getExecutor();
+        return virtual;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            ThreadFactory virtualFactory = null;
+            if (!"false".equals(getProperty(VIRTUAL_PROPERTY)))
+                virtualFactory = createVirtualThreadFactory();
+            virtual = virtualFactory != null;
+            int threads = Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS);
+            executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                    virtual ? virtualFactory : createDaemonThreadFactory(),
+                    createOverflowHandler());
+            executor.allowCoreThreadTimeOut(true);
+            logger.debug("Splitters use " + (virtual ? "virtual threads" : "platform threads"));
+        }
+        return executor;
+    }
+
+    private static RejectedExecutionHandler createOverflowHandler() {
+        return new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(final Runnable task, ThreadPoolExecutor pool) {
+                logger.debug("All splitters' threads are busy - starting dedicated thread");
+                overflowActive.incrementAndGet();
+                pool.getThreadFactory().newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } finally {
+                            overflowActive.decrementAndGet();
+                            overflowCompleted.incrementAndGet();
+                        }
+                    }
+                }).start();
+            }
+        };
+    }
+
+    private static ThreadFactory createDaemonThreadFactory() {
+        return new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, THREAD_NAME + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            // Thread.ofVirtual().name(THREAD_NAME, 1).factory() - Java 21+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, THREAD_NAME, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+}
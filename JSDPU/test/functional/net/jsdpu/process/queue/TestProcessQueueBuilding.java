@@ -0,0 +1,127 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import net.jsdpu.process.queue.TestElevationSession.NoInputBuilder;
+import net.jsdpu.process.queue.TestElevationSession.StandInBuilder;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class TestProcessQueueBuilding {
+    @Test
+    public void testBuild() throws IOException {
+        // given
+        ProcessQueueBuilder builder = new ProcessQueueBuilder().enqueue(
+                new ProcessBuilder("sh", "-c", "echo output; echo error >&2; exit 3"),
+                new ProcessBuilder("/nonexistent/command"),
+                new ProcessBuilder("sh", "-c", "echo merged >&2").redirectErrorStream(true));
+
+        // when
+        ProcessQueue queue = builder.build();
+        Iterator<EnqueuedProcess> processes = queue.iterator();
+        EnqueuedProcess succeeded = processes.next();
+        EnqueuedProcess failed = processes.next();
+        EnqueuedProcess merged = processes.next();
+
+        // then
+        assertThat(queue).as("build() should enqueue every process").hasSize(3);
+        assertThat(read(succeeded.getInputStream())).as("process should pass its output")
+                .isEqualTo("output\n");
+        assertThat(read(succeeded.getErrorStream())).as("process should pass its error output")
+                .isEqualTo("error\n");
+        assertThat(succeeded.waitFor()).as("process should pass its exit value").isEqualTo(3);
+        assertThat(read(failed.getInputStream())).as("failed process should have no output")
+                .isEmpty();
+        assertThat(read(failed.getErrorStream())).as("failed process should report failure")
+                .contains("IOException");
+        assertThat(failed.waitFor()).as("failed process should report failure").isEqualTo(
+                QueueCaller.FAILED_TO_START);
+        assertThat(read(merged.getInputStream())).as("process should merge its error output")
+                .isEqualTo("merged\n");
+        assertThat(merged.waitFor()).as("process should pass its exit value").isEqualTo(0);
+    }
+
+    @Test
+    public void testUnreadOutput() throws IOException, InterruptedException {
+        // given
+        ProcessQueueBuilder builder = new ProcessQueueBuilder().enqueue(new ProcessBuilder(
+                "head", "-c", "200000", "/dev/zero"), new ProcessBuilder("echo", "second"));
+
+        // when
+        ProcessQueue queue = builder.build();
+        Iterator<EnqueuedProcess> processes = queue.iterator();
+        EnqueuedProcess unread = processes.next();
+        EnqueuedProcess second = processes.next();
+        boolean finished = second.waitFor(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(finished).as("process shouldn't wait for output of previous one").isTrue();
+        assertThat(read(second.getInputStream())).as("process should pass its output")
+                .isEqualTo("second\n");
+        assertThat(read(unread.getInputStream()).length()).as("unread output should be kept")
+                .isEqualTo(200000);
+    }
+
+    @Test
+    public void testElevationSessions() throws IOException, InterruptedException {
+        // given
+        ProcessQueueBuilder builder = new ProcessQueueBuilder().enqueue(
+                new StandInBuilder().setCommand("echo", "a"),
+                new StandInBuilder().setCommand("echo", "b"),
+                new NoInputBuilder().setCommand("echo", "c"),
+                new NoInputBuilder().setCommand("echo", "d"));
+
+        // when
+        ProcessQueue queue = builder.build();
+        for (EnqueuedProcess process : queue)
+            process.waitFor();
+
+        // then
+        assertThat(queue instanceof ElevatedProcessQueue).as(
+                "build() should create ElevatedProcessQueue for elevated processes").isTrue();
+        assertThat(((ElevatedProcessQueue) queue).getElevationSessions()).as(
+                "build() should count one session per builder or per entry without input")
+                .isEqualTo(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuildRedirected() throws IOException {
+        // given
+        ProcessQueueBuilder builder = new ProcessQueueBuilder().enqueue(new ProcessBuilder(
+                "sh", "-c", "echo output").redirectOutput(new File("output.txt")));
+
+        // when
+        builder.build();
+    }
+
+    private String read(InputStream stream) throws IOException {
+        try {
+            return new String(ByteStreams.toByteArray(stream), "UTF-8");
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.lang.System.out;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.sort;
+import static net.jsdpu.JavaSystemUtils.createCommandToRunMain;
+import static net.jsdpu.JavaSystemUtils.getHelperJvmArguments;
+import static net.jsdpu.process.executors.MultiCaller.STDIN_PROPERTY;
+import static net.jsdpu.process.executors.MultiCaller.prepareInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures start up latency of MultiCaller run with default Java VM arguments
+ * and with fast-start helper profile.
+ * 
+ * <p>
+ * Each run passes empty batch to MultiCaller's standard input, so measured
+ * time is dominated by Java VM start up and MultiCaller's initialization.
+ * Optional argument sets number of runs of each profile.
+ * </p>
+ */
+public class HelperStartupBenchmark {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        List<String> stdin = asList("-D" + STDIN_PROPERTY + "=true");
+        List<String> helper = getHelperJvmArguments(MultiCaller.class);
+        helper.addAll(stdin);
+
+        out.println("Fast-start profile: " + helper);
+        measure(createCommandToRunMain(MultiCaller.class, stdin, new ArrayList<String>()), 3);
+        measure(createCommandToRunMain(MultiCaller.class, helper, new ArrayList<String>()), 3);
+
+        long[] defaultTimes = measure(createCommandToRunMain(MultiCaller.class,
+                stdin, new ArrayList<String>()), runs);
+        long[] helperTimes = measure(createCommandToRunMain(MultiCaller.class,
+                helper, new ArrayList<String>()), runs);
+
+        report("default", defaultTimes);
+        report("fast-start", helperTimes);
+    }
+
+    private static long[] measure(String[] command, int runs) throws IOException,
+            InterruptedException {
+        byte[] input = prepareInput(new ArrayList<String[]>(), 1);
+        long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getOutputStream().write(input);
+            process.getOutputStream().close();
+            InputStream output = process.getInputStream();
+            while (output.read() >= 0)
+                ;
+            process.waitFor();
+            times[i] = (System.nanoTime() - start) / 1000000;
+        }
+        return times;
+    }
+
+    private static void report(String name, long[] times) {
+        long sum = 0;
+        for (long time : times)
+            sum += time;
+        sort(times);
+        out.println(name + ": mean " + (sum / times.length) + " ms, median "
+                + times[times.length / 2] + " ms, min " + times[0] + " ms, max "
+                + times[times.length - 1] + " ms");
+    }
+}
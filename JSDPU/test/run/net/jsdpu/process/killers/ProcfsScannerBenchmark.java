@@ -0,0 +1,68 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.lang.System.out;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Compares obtaining process table by running <code>ps -ef</code> with
+ * reading it by ProcfsScanner.
+ * 
+ * <p>
+ * Optional argument sets number of iterations (by default 50).
+ * </p>
+ */
+public class ProcfsScannerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        ProcfsScanner scanner = new ProcfsScanner();
+
+        for (int i = 0; i < 5; i++) {
+            runPs();
+            scanner.scan();
+        }
+
+        long start = System.nanoTime();
+        int psLines = 0;
+        for (int i = 0; i < iterations; i++)
+            psLines = runPs();
+        long psTime = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        int records = 0;
+        for (int i = 0; i < iterations; i++)
+            records = scanner.scan().size();
+        long scanTime = (System.nanoTime() - start) / iterations;
+
+        out.println("ps -ef:  " + psLines + " lines in " + psTime / 1000 + " us");
+        out.println("scanner: " + records + " records in " + scanTime / 1000 + " us");
+    }
+
+    private static int runPs() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("ps", "-ef").start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                process.getInputStream()));
+        int lines = 0;
+        while (reader.readLine() != null)
+            lines++;
+        process.waitFor();
+        return lines;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.lang.System.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Measures throughput of InputStreamSplitter demultiplexing output of
+ * several processes.
+ * 
+ * <p>
+ * Source contains frames of given number of processes (by default 16), each
+ * of them with 8 MiB of output written in 8 KiB chunks and followed by exit
+ * frame. Optional arguments set number of processes and size of their output
+ * in MiB.
+ * </p>
+ */
+public class InputStreamSplitterBenchmark {
+    public static void main(String[] args) throws Exception {
+        int streams = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        byte[] source = createSource(streams, megabytes * 1024 * 1024);
+
+        measure("warm up", source, streams);
+        measure("splitting", source, streams);
+    }
+
+    private static byte[] createSource(int streams, int size) throws IOException {
+        byte[] chunk = new byte[8192];
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(source);
+        for (int i = 0; i < streams; i++) {
+            encoder.started(i);
+            for (int written = 0; written < size; written += chunk.length)
+                encoder.write(i, QueueFrames.OUTPUT, chunk, 0, chunk.length);
+            encoder.exited(i, 0);
+        }
+        return source.toByteArray();
+    }
+
+    private static void measure(String name, byte[] source, int streams) throws Exception {
+        long start = System.nanoTime();
+        InputStreamSplitter splitter = new InputStreamSplitter(new ByteArrayInputStream(source),
+                streams);
+        splitter.start();
+
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        for (InputStream stream : splitter.getSplittedStreams()) {
+            int read;
+            while ((read = stream.read(buffer)) >= 0)
+                total += read;
+        }
+        long time = System.nanoTime() - start;
+
+        out.println(name + ": " + (total / 1024 / 1024) + " MiB in " + (time / 1000000)
+                + " ms - " + (total * 1000000000L / time / 1024 / 1024) + " MiB/s");
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.lang.System.out;
+
+import java.io.IOException;
+
+/**
+ * Measures throughput of ProcessInputStream with one producer and one
+ * consumer thread.
+ * 
+ * <p>
+ * Producer passes data byte by byte and in 8 KiB chunks, consumer reads it
+ * into 8 KiB buffer. Optional argument sets amount of data in MiB.
+ * </p>
+ */
+public class ProcessInputStreamBenchmark {
+    private static final int CHUNK_SIZE = 8192;
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        long size = megabytes * 1024L * 1024L;
+
+        measure("warm up", size / 4, false);
+        measure("warm up", size / 4, true);
+        measure("byte by byte", size, false);
+        measure("8 KiB chunks", size, true);
+    }
+
+    private static void measure(String name, final long size, final boolean chunks)
+            throws Exception {
+        final ProcessInputStream stream = new ProcessInputStream();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                for (long written = 0; written < size; written += CHUNK_SIZE)
+                    if (chunks)
+                        stream.add(chunk, 0, CHUNK_SIZE);
+                    else
+                        for (int i = 0; i < CHUNK_SIZE; i++)
+                            stream.add(chunk[i]);
+                stream.finish();
+            }
+        });
+
+        long start = System.nanoTime();
+        producer.start();
+        long read = consume(stream);
+        producer.join();
+        long time = System.nanoTime() - start;
+
+        out.println(name + ": " + (read / 1024 / 1024) + " MiB in " + (time / 1000000)
+                + " ms - " + (read * 1000000000L / time / 1024 / 1024) + " MiB/s");
+    }
+
+    private static long consume(ProcessInputStream stream) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        long total = 0;
+        int read;
+        while ((read = stream.read(buffer)) >= 0)
+            total += read;
+        return total;
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.elevated;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestElevationBackends {
+    @Test
+    public void testToolBackend() throws IOException {
+        // given
+        File tool = standInTool(0);
+        ToolElevationBackend backend = new ToolElevationBackend("stand-in", tool.getPath(),
+                asList("-n", "--"), asList("-n", "true"));
+
+        // when
+        boolean available = backend.isAvailable();
+        List<String> command = backend.getElevationCommand();
+
+        // then
+        assertThat(available).as("isAvailable() should return true for working tool").isTrue();
+        assertThat(command).as("getElevationCommand() should return tool with arguments")
+                .isEqualTo(asList(tool.getPath(), "-n", "--"));
+    }
+
+    @Test
+    public void testUnavailableToolBackend() throws IOException {
+        // given
+        ToolElevationBackend failing = new ToolElevationBackend("failing", standInTool(1)
+                .getPath(), new ArrayList<String>(), new ArrayList<String>());
+        ToolElevationBackend missing = new ToolElevationBackend("missing",
+                "/nonexistent/elevation-tool", new ArrayList<String>(), new ArrayList<String>());
+
+        // when
+        boolean failingAvailable = failing.isAvailable();
+        boolean missingAvailable = missing.isAvailable();
+
+        // then
+        assertThat(failingAvailable).as("isAvailable() should return false for failing probe")
+                .isFalse();
+        assertThat(missingAvailable).as("isAvailable() should return false for missing tool")
+                .isFalse();
+    }
+
+    @Test
+    public void testRootBackend() throws IOException {
+        // given
+        RootElevationBackend root = new RootElevationBackend(statusFile("Uid:\t1000\t0\t0\t0")
+                .getPath());
+        RootElevationBackend user = new RootElevationBackend(statusFile("Uid:\t0\t1000\t0\t0")
+                .getPath());
+
+        // when
+        boolean rootAvailable = root.isAvailable();
+        boolean userAvailable = user.isAvailable();
+
+        // then
+        assertThat(rootAvailable).as("isAvailable() should check effective UID").isTrue();
+        assertThat(userAvailable).as("isAvailable() should check effective UID").isFalse();
+        assertThat(root.getElevationCommand()).as(
+                "getElevationCommand() should return empty command").isEmpty();
+    }
+
+    @Test
+    public void testSelect() throws IOException {
+        // given
+        ElevationBackend failing = new ToolElevationBackend("failing", standInTool(1).getPath(),
+                new ArrayList<String>(), new ArrayList<String>());
+        ElevationBackend working = new ToolElevationBackend("working", standInTool(0).getPath(),
+                new ArrayList<String>(), new ArrayList<String>());
+        ElevationBackend fallback = new ToolElevationBackend("fallback", "/nonexistent/tool",
+                new ArrayList<String>(), new ArrayList<String>());
+
+        // when
+        ElevationBackend selected = ElevationBackends.select(asList(failing, working), fallback);
+        ElevationBackend none = ElevationBackends.select(asList(failing), fallback);
+
+        // then
+        assertThat(selected).as("select(List, ElevationBackend) should select available backend")
+                .isSameAs(working);
+        assertThat(none).as("select(List, ElevationBackend) should use fallback").isSameAs(
+                fallback);
+    }
+
+    @Test
+    public void testSelectForced() throws IOException {
+        // given
+        ElevationBackend failing = new ToolElevationBackend("failing", standInTool(1).getPath(),
+                new ArrayList<String>(), new ArrayList<String>());
+        ElevationBackend working = new ToolElevationBackend("working", standInTool(0).getPath(),
+                new ArrayList<String>(), new ArrayList<String>());
+        IllegalStateException unknown = null;
+
+        // when
+        ElevationBackend selected;
+        try {
+            System.setProperty(ElevationBackends.BACKEND_PROPERTY, "failing");
+            selected = ElevationBackends.select(asList(working, failing), working);
+            System.setProperty(ElevationBackends.BACKEND_PROPERTY, "unknown");
+            try {
+                ElevationBackends.select(asList(working, failing), working);
+            } catch (IllegalStateException e) {
+                unknown = e;
+            }
+        } finally {
+            System.clearProperty(ElevationBackends.BACKEND_PROPERTY);
+        }
+
+        // then
+        assertThat(selected).as("select(List, ElevationBackend) should select forced backend")
+                .isSameAs(failing);
+        assertThat(unknown).as("select(List, ElevationBackend) should reject unknown backend")
+                .isNotNull();
+        assertThat(unknown.getMessage()).as("exception should name unknown backend").contains(
+                "unknown");
+    }
+
+    @Test
+    public void testPolkitBackend() throws IOException {
+        // given
+        final String tool = standInTool(0).getPath();
+        PolkitElevationBackend withAgent = new PolkitElevationBackend("polkit", tool) {
+            @Override
+            protected boolean hasAgentSession() {
+                return true;
+            }
+        };
+        PolkitElevationBackend withoutAgent = new PolkitElevationBackend("polkit", tool) {
+            @Override
+            protected boolean hasAgentSession() {
+                return false;
+            }
+        };
+
+        // when
+        boolean withAgentAvailable = withAgent.isAvailable();
+        boolean withoutAgentAvailable = withoutAgent.isAvailable();
+
+        // then
+        assertThat(withAgentAvailable).as("isAvailable() should return true with agent session")
+                .isTrue();
+        assertThat(withoutAgentAvailable).as(
+                "isAvailable() should return false without agent session").isFalse();
+        assertThat(withAgent.getElevationCommand()).as(
+                "getElevationCommand() should return tool only").isEqualTo(asList(tool));
+    }
+
+    private File standInTool(int exitValue) throws IOException {
+        File tool = File.createTempFile("elevation", ".sh");
+        tool.deleteOnExit();
+        try (FileWriter writer = new FileWriter(tool)) {
+            writer.write("#!/bin/sh\nexit " + exitValue + "\n");
+        }
+        tool.setExecutable(true);
+        return tool;
+    }
+
+    private File statusFile(String uidLine) throws IOException {
+        File status = File.createTempFile("status", "");
+        status.deleteOnExit();
+        try (FileWriter writer = new FileWriter(status)) {
+            writer.write("Name:\tjava\n" + uidLine + "\nGid:\t0\t0\t0\t0\n");
+        }
+        return status;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.JavaSystemUtils.getJavaExecutablePath;
+import static net.jsdpu.process.executors.BrokerConnection.ABORTED;
+import static net.jsdpu.process.executors.MultiCaller.FAILED_TO_START;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.MapEntry.entry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestBrokerConnection {
+    @Test
+    public void testExecute() throws IOException, InterruptedException,
+            InvalidCommandException {
+        // given
+        BrokerConnection connection = new BrokerConnection(new ArrayList<String>(), 60000);
+        List<String[]> commands = asList(new String[] { getJavaExecutablePath(), "-version" },
+                new String[] { "jsdpu-nonexistent-program" });
+
+        try {
+            // when
+            Process batch = connection.execute(commands, 1);
+            ExecutionQueueReader reader = new ExecutionQueueReader(new ProcessQueue(batch));
+            reader.rewind();
+
+            // then
+            assertThat(reader.getExitValues())
+                    .as("execute(List, int) should pass exit value of each command").hasSize(2)
+                    .contains(entry(0, 0), entry(1, FAILED_TO_START));
+            assertThat(batch.waitFor())
+                    .as("execute(List, int) should return exit value of first failed command")
+                    .isEqualTo(FAILED_TO_START);
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testDestroy() throws IOException, InterruptedException {
+        // given
+        BrokerConnection connection = new BrokerConnection(new ArrayList<String>(), 60000);
+        File marker = File.createTempFile("jsdpu", ".marker");
+        marker.delete();
+        List<String[]> commands = new ArrayList<String[]>();
+        commands.add(new String[] { getJavaExecutablePath(), "-cp",
+                System.getProperty("java.class.path"), Sleeper.class.getName(), marker.getPath() });
+
+        try {
+            // when
+            Process batch = connection.execute(commands, 1);
+            batch.destroy();
+            int exitValue = batch.waitFor();
+            Thread.sleep(2 * Sleeper.SLEEP_TIME);
+            commands.set(0, new String[] { getJavaExecutablePath(), "-version" });
+            Process nextBatch = connection.execute(commands, 1);
+
+            // then
+            assertThat(exitValue).as("destroy() should abort batch").isEqualTo(ABORTED);
+            assertThat(marker.exists()).as("destroy() should destroy batch's processes")
+                    .isFalse();
+            assertThat(nextBatch.waitFor()).as("execute(List, int) should restart broker")
+                    .isEqualTo(0);
+        } finally {
+            connection.close();
+            marker.delete();
+        }
+    }
+
+    @Test
+    public void testDestroyWhileReading() throws IOException, InterruptedException {
+        // given
+        BrokerConnection connection = new BrokerConnection(new ArrayList<String>(), 60000);
+        File marker = File.createTempFile("jsdpu", ".marker");
+        marker.delete();
+        List<String[]> commands = new ArrayList<String[]>();
+        commands.add(new String[] { getJavaExecutablePath(), "-cp",
+                System.getProperty("java.class.path"), Sleeper.class.getName(), marker.getPath() });
+
+        try {
+            final Process batch = connection.execute(commands, 1);
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        InputStream output = batch.getInputStream();
+                        while (output.read() >= 0)
+                            ;
+                    } catch (IOException e) {
+                    }
+                }
+            });
+            reader.start();
+            Thread.sleep(Sleeper.SLEEP_TIME / 5);
+
+            // when
+            long start = System.currentTimeMillis();
+            batch.destroy();
+            long destroyTime = System.currentTimeMillis() - start;
+            reader.join(10 * Sleeper.SLEEP_TIME);
+            Thread.sleep(2 * Sleeper.SLEEP_TIME);
+
+            // then
+            assertThat(destroyTime).as("destroy() should not wait for reader")
+                    .isLessThan(Sleeper.SLEEP_TIME / 2);
+            assertThat(reader.isAlive()).as("destroy() should end reading of batch").isFalse();
+            assertThat(batch.exitValue()).as("destroy() should abort batch").isEqualTo(ABORTED);
+            assertThat(marker.exists()).as("destroy() should destroy batch's processes")
+                    .isFalse();
+        } finally {
+            connection.close();
+            marker.delete();
+        }
+    }
+
+    /**
+     * Creates file passed as argument after a while.
+     */
+    public static class Sleeper {
+        static final long SLEEP_TIME = 1500;
+
+        public static void main(String[] args) throws IOException, InterruptedException {
+            Thread.sleep(SLEEP_TIME);
+            new File(args[0]).createNewFile();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.process.executors.CommandFrames.*;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import net.jsdpu.process.executors.CommandFrames.Batch;
+
+import org.junit.Test;
+
+public class TestCommandFrames {
+    @Test
+    public void testCommands() throws IOException {
+        // given
+        List<String[]> commands = asList(new String[] { "command", "\u0105\u0119 argument" },
+                new String[] { "" });
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        // when
+        writeCommands(new DataOutputStream(buffer), commands, 4);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                buffer.toByteArray()));
+        Batch batch = readCommands(input);
+        Batch end = readCommands(input);
+
+        // then
+        assertThat(batch).as("readCommands(DataInputStream) should read written batch")
+                .isNotNull();
+        assertThat(batch.parallelism).as("readCommands(DataInputStream) should read parallelism")
+                .isEqualTo(4);
+        assertThat(batch.commands.size()).as("readCommands(DataInputStream) should read commands")
+                .isEqualTo(2);
+        assertThat(batch.commands.get(0)).as("readCommands(DataInputStream) should read commands")
+                .isEqualTo(new String[] { "command", "\u0105\u0119 argument" });
+        assertThat(batch.commands.get(1)).as("readCommands(DataInputStream) should read commands")
+                .isEqualTo(new String[] { "" });
+        assertThat(end).as("readCommands(DataInputStream) should return null at the end of stream")
+                .isNull();
+    }
+
+    @Test(expected = IOException.class)
+    public void testOversizedArgument() throws IOException {
+        // given
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+        output.writeInt(1);
+        output.writeInt(1);
+        output.writeInt(1);
+        output.writeInt(MAX_ARGUMENT_SIZE + 1);
+
+        // when
+        readCommands(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativeNumberOfArguments() throws IOException {
+        // given
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+        output.writeInt(1);
+        output.writeInt(1);
+        output.writeInt(-1);
+
+        // when
+        readCommands(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+    }
+}
@@ -16,10 +16,15 @@
 package net.jsdpu.process.executors;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
 import static net.jsdpu.process.executors.Commands.*;
 import static org.fest.assertions.api.Assertions.assertThat;
 
+import java.io.File;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -142,4 +147,121 @@ public class TestCommands {
         assertThat(result).as("joinArguments(String[]) should properly join arguments").isNotNull()
                 .isEqualTo("some \"argument\" some other argument");
     }
+
+    @Test
+    public void testConvertShellConsoleCommandExpansion() throws InvalidCommandException {
+        // given
+        String command = "LANG=C ls $HOME/bin \"${DIR} 2\" \\$HOME";
+        Map<String, String> environment = new HashMap<String, String>();
+        environment.put("HOME", "/home/user");
+        environment.put("DIR", "some dir");
+
+        // when
+        ProcessBuilder result = convertShellConsoleCommand(command, environment);
+
+        // then
+        assertThat(result.command())
+                .as("convertShellConsoleCommand(String,Map) should expand variables")
+                .isNotNull().isEqualTo(asList("ls", "/home/user/bin", "some dir 2", "$HOME"));
+        assertThat(result.environment().get("LANG"))
+                .as("convertShellConsoleCommand(String,Map) should set assigned variables")
+                .isEqualTo("C");
+    }
+
+    @Test
+    public void testConvertShellConsoleCommandRedirections() throws InvalidCommandException {
+        // given
+        String command = "java -jar Installer.jar < input.txt >> \"output.log\" 2>&1 \">\"";
+        Map<String, String> environment = new HashMap<String, String>();
+
+        // when
+        ProcessBuilder result = convertShellConsoleCommand(command, environment);
+
+        // then
+        assertThat(result.command())
+                .as("convertShellConsoleCommand(String,Map) should remove redirections")
+                .isNotNull().isEqualTo(asList("java", "-jar", "Installer.jar", ">"));
+        assertThat(result.redirectInput())
+                .as("convertShellConsoleCommand(String,Map) should redirect input")
+                .isEqualTo(Redirect.from(new File("input.txt")));
+        assertThat(result.redirectOutput())
+                .as("convertShellConsoleCommand(String,Map) should redirect output")
+                .isEqualTo(Redirect.appendTo(new File("output.log")));
+        assertThat(result.redirectErrorStream())
+                .as("convertShellConsoleCommand(String,Map) should merge error stream")
+                .isTrue();
+    }
+
+    @Test
+    public void testConvertShellConsoleCommandQuotedAssignment() throws InvalidCommandException {
+        // given
+        String command = "FOO=\"a b\" prog x \"BAR=c\"";
+        Map<String, String> environment = new HashMap<String, String>();
+
+        // when
+        ProcessBuilder result = convertShellConsoleCommand(command, environment);
+
+        // then
+        assertThat(result.command())
+                .as("convertShellConsoleCommand(String,Map) should keep quoted assignment whole")
+                .isNotNull().isEqualTo(asList("prog", "x", "BAR=c"));
+        assertThat(result.environment().get("FOO"))
+                .as("convertShellConsoleCommand(String,Map) should unquote assigned value")
+                .isEqualTo("a b");
+    }
+
+    @Test
+    public void testConvertShellConsoleCommandAttachedRedirection() throws InvalidCommandException {
+        // given
+        String command = "prog a>b c2>\"d e\"";
+        Map<String, String> environment = new HashMap<String, String>();
+
+        // when
+        ProcessBuilder result = convertShellConsoleCommand(command, environment);
+
+        // then
+        assertThat(result.command())
+                .as("convertShellConsoleCommand(String,Map) should split redirection from word")
+                .isNotNull().isEqualTo(asList("prog", "a", "c2"));
+        assertThat(result.redirectOutput())
+                .as("convertShellConsoleCommand(String,Map) should redirect output")
+                .isEqualTo(Redirect.to(new File("d e")));
+    }
+
+    @Test(expected = InvalidCommandException.class)
+    public void testConvertShellConsoleCommandUnsupported() throws InvalidCommandException {
+        // given
+        String command = "java -jar Installer.jar >&2";
+
+        // when
+        convertShellConsoleCommand(command, new HashMap<String, String>());
+    }
+
+    @Test
+    public void testSplitArguments() throws InvalidCommandException {
+        // given
+        List<String> command = newArrayList("rm", "-f");
+        List<String> arguments = newArrayList("file1", "file2", "file3", "file4", "file5");
+
+        // when
+        List<String[]> result = splitArguments(command, arguments, 60);
+
+        // then
+        assertThat(result).as("splitArguments(List,List,long) should split arguments")
+                .isNotNull().hasSize(3);
+        assertThat(result.get(0)).as("splitArguments(List,List,long) should keep command")
+                .isEqualTo(new String[] { "rm", "-f", "file1", "file2" });
+        assertThat(result.get(2)).as("splitArguments(List,List,long) should keep all arguments")
+                .isEqualTo(new String[] { "rm", "-f", "file5" });
+    }
+
+    @Test(expected = InvalidCommandException.class)
+    public void testSplitArgumentsTooLong() throws InvalidCommandException {
+        // given
+        List<String> command = newArrayList("rm", "-f");
+        List<String> arguments = newArrayList("some-very-long-file-name-exceeding-limit");
+
+        // when
+        splitArguments(command, arguments, 40);
+    }
 }
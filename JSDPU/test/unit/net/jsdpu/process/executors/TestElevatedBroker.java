@@ -0,0 +1,113 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.JavaSystemUtils.createCommandToRunMain;
+import static net.jsdpu.JavaSystemUtils.getJavaExecutablePath;
+import static net.jsdpu.process.executors.CommandFrames.writeCommands;
+import static net.jsdpu.process.executors.ElevatedBroker.IDLE_TIMEOUT_PROPERTY;
+import static net.jsdpu.process.executors.MultiCaller.FAILED_TO_START;
+import static net.jsdpu.process.queue.QueueFrames.ERROR;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.MapEntry.entry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.jsdpu.process.queue.FrameDecoder;
+
+import org.junit.Test;
+
+public class TestElevatedBroker {
+    @Test
+    public void testBatch() throws IOException, InterruptedException {
+        // given
+        Process broker = startBroker(60000);
+        List<String[]> commands = asList(new String[] { getJavaExecutablePath(), "-version" },
+                new String[] { "jsdpu-nonexistent-program" });
+        RecordingListener listener = new RecordingListener();
+
+        // when
+        writeCommands(new DataOutputStream(broker.getOutputStream()), commands, 2);
+        FrameDecoder decoder = new FrameDecoder(broker.getInputStream());
+        while (listener.exitValues.size() < commands.size() && decoder.decodeFrame(listener))
+            ;
+        broker.getOutputStream().close();
+        int exitValue = broker.waitFor();
+
+        // then
+        assertThat(listener.exitValues).as("ElevatedBroker should send exit value of each command")
+                .hasSize(2).contains(entry(0, 0), entry(1, FAILED_TO_START));
+        assertThat(listener.error.toString()).as("ElevatedBroker should send error output")
+                .contains("version");
+        assertThat(listener.interleaved)
+                .as("ElevatedBroker should send frames of concurrent commands one after another")
+                .isFalse();
+        assertThat(exitValue).as("ElevatedBroker should finish when its input is closed")
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void testIdleTimeout() throws IOException, InterruptedException {
+        // given
+        Process broker = startBroker(100);
+
+        // when
+        int exitValue = broker.waitFor();
+
+        // then
+        assertThat(exitValue).as("ElevatedBroker should finish after idle timeout").isEqualTo(0);
+    }
+
+    private Process startBroker(long idleTimeout) throws IOException {
+        return new ProcessBuilder(createCommandToRunMain(ElevatedBroker.class,
+                asList("-D" + IDLE_TIMEOUT_PROPERTY + "=" + idleTimeout), new ArrayList<String>()))
+                .start();
+    }
+
+    private static class RecordingListener implements FrameDecoder.Listener {
+        private final Map<Integer, Integer> exitValues = new HashMap<Integer, Integer>();
+        private final ByteArrayOutputStream error = new ByteArrayOutputStream();
+        private Integer current = null;
+        private boolean interleaved = false;
+
+        @Override
+        public void started(int process) {
+            interleaved |= current != null;
+            current = process;
+        }
+
+        @Override
+        public void write(int process, byte stream, byte[] payload, int offset, int length) {
+            interleaved |= current == null || current != process;
+            if (stream == ERROR)
+                error.write(payload, offset, length);
+        }
+
+        @Override
+        public void exited(int process, int exitValue) {
+            interleaved |= current == null || current != process;
+            exitValues.put(process, exitValue);
+            current = null;
+        }
+    }
+}
@@ -16,7 +16,13 @@
 package net.jsdpu.process.executors;
 
 import static net.jsdpu.process.executors.MockExecutors.processQueue;
+import static net.jsdpu.process.executors.MultiCaller.*;
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.MapEntry.entry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -64,4 +70,70 @@ public class TestExecutionQueueReader {
         // when
         reader.rewind();
     }
+
+    @Test
+    public void testMultiCallerFrames() throws InvalidCommandException {
+        // given
+        String begin = "\n" + FRAME_PREFIX + BEGIN_FRAME + " ";
+        String exit = "\n" + FRAME_PREFIX + EXIT_FRAME + " ";
+        ProcessQueue processQueue = processQueue(begin + "0\nline1" + exit + "0 0\n" + begin
+                + "1\nline2" + exit + "1 2\n", begin + "0\n" + begin + "1\nerror2\n");
+        ExecutionQueueReader reader = new ExecutionQueueReader(processQueue);
+
+        // when
+        String output1 = reader.getNextOutput();
+        int command1 = reader.getCurrentCommand();
+        String output2 = reader.getNextOutput();
+        int command2 = reader.getCurrentCommand();
+        String output3 = reader.getNextOutput();
+        int command3 = reader.getCurrentCommand();
+        String output4 = reader.getNextOutput();
+
+        // then
+        assertThat(output1).as("getNextOutput() should skip frames").isEqualTo("line1");
+        assertThat(command1).as("getCurrentCommand() should attribute output to command")
+                .isEqualTo(0);
+        assertThat(output2).as("getNextOutput() should skip frames").isEqualTo("line2");
+        assertThat(command2).as("getCurrentCommand() should attribute output to command")
+                .isEqualTo(1);
+        assertThat(output3).as("getNextOutput() should skip frames").isEqualTo("error2");
+        assertThat(command3).as("getCurrentCommand() should attribute error to command")
+                .isEqualTo(1);
+        assertThat(output4).as("getNextOutput() should return null at the end").isNull();
+        assertThat(reader.getExitValues())
+                .as("getExitValues() should return exit value of each command").hasSize(2)
+                .contains(entry(0, 0), entry(1, 2));
+    }
+
+    @Test
+    public void testStartFailureAhead() throws InvalidCommandException {
+        // given
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        List<ProcessBuilder> processBuilders = new ArrayList<ProcessBuilder>();
+        processBuilders.add(new ProcessBuilder(java, "-version"));
+        processBuilders.add(new ProcessBuilder("jsdpu-nonexistent-program"));
+        processBuilders.add(new ProcessBuilder(java, "-version"));
+        ExecutionQueueReader reader = new ExecutionQueueReader(new ProcessQueue(processBuilders,
+                3));
+
+        // when
+        InvalidCommandException failure = null;
+        try {
+            reader.rewind();
+        } catch (InvalidCommandException e) {
+            failure = e;
+        }
+        int command = reader.getCurrentCommand();
+        String output = reader.getNextOutput();
+
+        // then
+        assertThat(failure).as("getNextOutput() should report failure to start process")
+                .isNotNull();
+        assertThat(command).as("getCurrentCommand() should attribute failure to its command")
+                .isEqualTo(1);
+        assertThat(reader.getExitValues())
+                .as("getExitValues() should contain commands finished before failure").hasSize(1)
+                .contains(entry(0, 0));
+        assertThat(output).as("getNextOutput() should abort queue after failure").isNull();
+    }
 }
@@ -16,8 +16,6 @@
 package net.jsdpu.process.executors;
 
 import static java.util.Arrays.asList;
-import static net.jsdpu.process.executors.Commands.convertSingleCommand;
-import static net.jsdpu.process.executors.MultiCaller.prepareCommand;
 import static org.fest.assertions.api.Assertions.assertThat;
 
 import java.lang.reflect.InvocationTargetException;
@@ -25,6 +23,8 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.jsdpu.process.elevated.ElevationBackends;
+
 import org.junit.Test;
 
 public class TestLinuxProcessExecutor {
@@ -39,18 +39,31 @@ public class TestLinuxProcessExecutor {
         rootCommand.setAccessible(true);
 
         // when
-        List<String[]> result = (List<String[]>) rootCommand.invoke(executor, command);
+        List<String[]> sudo = rootCommand(executor, rootCommand, "sudo", command);
+        List<String[]> root = rootCommand(executor, rootCommand, "root", command);
 
         // then
-        assertThat(result).as("rootCommand() should return root command").isNotNull().hasSize(1);
-        assertThat(result.get(0)).as("rootCommand() should return correct root command")
-                .isNotNull().isEqualTo(rootCommand(command));
+        assertThat(root).as("rootCommand() should return root command").isNotNull().hasSize(1);
+        List<String> multiCaller = asList(root.get(0));
+        assertThat(multiCaller.subList(multiCaller.size() - 2, multiCaller.size())).as(
+                "rootCommand() should pass command to MultiCaller").isEqualTo(
+                asList(MultiCaller.class.getName(), "\"java -jar Some Installer.jar\""));
+        assertThat(sudo).as("rootCommand() should return root command").isNotNull().hasSize(1);
+        List<String> elevated = new ArrayList<String>(asList("sudo", "-n", "--"));
+        elevated.addAll(multiCaller);
+        assertThat(asList(sudo.get(0))).as("rootCommand() should elevate MultiCaller with sudo")
+                .isEqualTo(elevated);
     }
 
-    private String[] rootCommand(List<String[]> commands) {
-        List<String> command = new ArrayList<String>();
-        command.add("pkexec");
-        command.addAll(asList(prepareCommand(commands)));
-        return convertSingleCommand(command).get(0);
+    @SuppressWarnings("unchecked")
+    private List<String[]> rootCommand(LinuxProcessExecutor executor, Method rootCommand,
+            String backend, List<String[]> command) throws IllegalAccessException,
+            InvocationTargetException {
+        System.setProperty(ElevationBackends.BACKEND_PROPERTY, backend);
+        try {
+            return (List<String[]>) rootCommand.invoke(executor, command);
+        } finally {
+            System.clearProperty(ElevationBackends.BACKEND_PROPERTY);
+        }
     }
 }
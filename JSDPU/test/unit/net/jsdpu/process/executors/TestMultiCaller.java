@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.process.executors.CommandFrames.readCommands;
+import static net.jsdpu.process.executors.MultiCaller.*;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import net.jsdpu.process.executors.CommandFrames.Batch;
+
+import org.junit.Test;
+
+public class TestMultiCaller {
+    @Test
+    public void testPrepareStdinCommand() {
+        // given
+        List<String> prefix = asList("pkexec");
+
+        // when
+        String[] command = prepareStdinCommand(prefix);
+
+        // then
+        assertThat(command[0]).as("prepareStdinCommand(List) should start with prefix")
+                .isEqualTo("pkexec");
+        assertThat(command).as("prepareStdinCommand(List) should enable reading standard input")
+                .contains("-D" + STDIN_PROPERTY + "=true");
+        assertThat(command[command.length - 1]).as(
+                "prepareStdinCommand(List) should run MultiCaller without arguments").isEqualTo(
+                MultiCaller.class.getName());
+    }
+
+    @Test
+    public void testPrepareInput() throws IOException {
+        // given
+        List<String[]> commands = asList(new String[] { "echo", "\"quoted\" 'argument'" },
+                new String[] { "ls", "-la" });
+
+        // when
+        byte[] input = prepareInput(commands, 2);
+        Batch batch = readCommands(new DataInputStream(new ByteArrayInputStream(input)));
+
+        // then
+        assertThat(batch.parallelism).as("prepareInput(List, int) should pass parallelism")
+                .isEqualTo(2);
+        assertThat(batch.commands.get(0)).as(
+                "prepareInput(List, int) should pass commands without quoting").isEqualTo(
+                new String[] { "echo", "\"quoted\" 'argument'" });
+        assertThat(batch.commands.get(1)).as(
+                "prepareInput(List, int) should pass commands without quoting").isEqualTo(
+                new String[] { "ls", "-la" });
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.executors;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestProcessQueue {
+    private static final String java = new File(new File(System.getProperty("java.home"),
+            "bin"), "java").getPath();
+
+    @Test
+    public void testStartFailureAhead() throws IOException, InterruptedException {
+        // given
+        List<ProcessBuilder> processBuilders = asList(new ProcessBuilder(java, "-version"),
+                new ProcessBuilder("jsdpu-nonexistent-program"), new ProcessBuilder(java,
+                        "-version"));
+        ProcessQueue queue = new ProcessQueue(new ArrayList<ProcessBuilder>(processBuilders), 3);
+
+        // when
+        Process first = queue.getNextProcess();
+        IOException failure = null;
+        try {
+            queue.getNextProcess();
+        } catch (IOException e) {
+            failure = e;
+        }
+        Process third = queue.getNextProcess();
+
+        // then
+        assertThat(first.waitFor()).as("getNextProcess() should return processes started ahead")
+                .isEqualTo(0);
+        assertThat(failure).as("getNextProcess() should report failure on failed process' turn")
+                .isNotNull();
+        assertThat(third.waitFor()).as("getNextProcess() should return processes after failure")
+                .isEqualTo(0);
+        assertThat(queue.isEmpty()).as("getNextProcess() should empty queue").isTrue();
+    }
+
+    @Test
+    public void testDestroy() throws IOException {
+        // given
+        ProcessQueue queue = new ProcessQueue(new ArrayList<ProcessBuilder>(asList(
+                new ProcessBuilder(java, "-version"), new ProcessBuilder(java, "-version"))), 2);
+        queue.getNextProcess();
+
+        // when
+        queue.destroy();
+
+        // then
+        assertThat(queue.isEmpty()).as("destroy() should empty queue").isTrue();
+        assertThat(queue.getNextProcess()).as("destroy() should remove remaining processes")
+                .isNull();
+    }
+}
@@ -0,0 +1,365 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.jsdpu.process.killers.Signal.INT;
+import static net.jsdpu.process.killers.Signal.KILL;
+import static net.jsdpu.process.killers.Signal.TERM;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.jsdpu.JavaSystemUtils;
+
+import org.junit.Test;
+
+public class TestAbstractProcessKiller {
+    private static final KillPolicy POLICY = KillPolicy.signal(TERM, 50, MILLISECONDS)
+            .then(INT, 50, MILLISECONDS).then(KILL, 50, MILLISECONDS);
+
+    @Test
+    public void testEscalation() throws Exception {
+        // given
+        ProcessRecord polite = process(10, "app");
+        ProcessRecord stubborn = process(11, "app");
+        ProcessRecord immortal = process(12, "app");
+        ProcessRecord other = process(13, "other");
+        FakeKiller killer = new FakeKiller(asList(polite, stubborn, immortal, other));
+        killer.diesOn(polite, TERM);
+        killer.diesOn(stubborn, KILL);
+
+        // when
+        KillReport report = killer.killProcess("app", POLICY);
+
+        // then
+        assertThat(report.getProcesses()).as("killProcess(...) should report matching processes")
+                .isEqualTo(asList(polite, stubborn, immortal));
+        assertThat(report.getOutcome(polite)).as("process finished after TERM should exit")
+                .isEqualTo(KillReport.Outcome.EXITED);
+        assertThat(report.getSignal(polite)).as("process finished after TERM should get TERM")
+                .isEqualTo(TERM);
+        assertThat(report.getOutcome(stubborn)).as("process finished after KILL should be killed")
+                .isEqualTo(KillReport.Outcome.KILLED);
+        assertThat(report.getOutcome(immortal)).as("running process should survive").isEqualTo(
+                KillReport.Outcome.SURVIVED);
+        assertThat(report.isSuccessful()).as("report with survivors should not be successful")
+                .isFalse();
+        assertThat(killer.sent).as(
+                "killProcess(...) should signal running processes with one call per stage")
+                .isEqualTo(asList("TERM [10, 11, 12]", "INT [11, 12]", "KILL [11, 12]"));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        // given
+        ProcessRecord foreign = process(10, "app");
+        ProcessRecord own = process(11, "app");
+        FakeKiller killer = new FakeKiller(asList(foreign, own));
+        killer.diesOn(own, TERM);
+        killer.deniedFor(foreign);
+
+        // when
+        KillReport report = killer.killProcess("app", POLICY);
+
+        // then
+        assertThat(report.getError(foreign)).as("report should contain delivery error")
+                .isEqualTo("kill: (10): Operation not permitted");
+        assertThat(report.getOutcome(foreign)).as("process should survive").isEqualTo(
+                KillReport.Outcome.SURVIVED);
+        assertThat(report.getError(own)).as("report should contain no error for killed process")
+                .isNull();
+    }
+
+    @Test
+    public void testTreeBottomUp() throws Exception {
+        // given
+        ProcessRecord parent = process(10, 1, "app");
+        ProcessRecord child = process(20, 10, "helper");
+        ProcessRecord grandchild = process(30, 20, "worker");
+        ProcessRecord sibling = process(21, 10, "helper");
+        ProcessRecord other = process(40, 1, "other");
+        FakeKiller killer = new FakeKiller(asList(parent, child, grandchild, sibling, other));
+        for (ProcessRecord process : asList(parent, child, grandchild, sibling))
+            killer.diesOn(process, TERM);
+
+        // when
+        KillReport report = killer.killProcess("app", POLICY.withScope(KillScope.TREE));
+
+        // then
+        assertThat(report.getProcesses()).as("TREE scope should kill process with descendants")
+                .containsOnly(parent, child, grandchild, sibling);
+        assertThat(report.isSuccessful()).as("TREE scope should kill whole tree").isTrue();
+        assertThat(killer.sent).as("TREE scope should signal processes bottom-up").isEqualTo(
+                asList("TERM [30]", "TERM [20, 21]", "TERM [10]"));
+    }
+
+    @Test
+    public void testCurrentProcessProtected() throws Exception {
+        // given
+        ProcessRecord current = process(JavaSystemUtils.getCurrentPid(), 1, "app");
+        ProcessRecord other = process(10, 1, "app");
+        FakeKiller killer = new FakeKiller(asList(current, other));
+        killer.diesOn(other, TERM);
+
+        // when
+        KillReport report = killer.killProcess("app", POLICY);
+
+        // then
+        assertThat(report.getProcesses()).as("current process should not be killed").isEqualTo(
+                asList(other));
+        assertThat(killer.sent).as("current process should not be signalled").isEqualTo(
+                asList("TERM [10]"));
+    }
+
+    @Test
+    public void testCurrentProcessChildrenProtected() throws Exception {
+        // given
+        int pid = JavaSystemUtils.getCurrentPid();
+        ProcessRecord current = new ProcessRecord(pid, 1, 7, 7, 'S', 100, 1000, "java", null,
+                asList("java"));
+        ProcessRecord child = new ProcessRecord(pid + 1, pid, 7, 7, 'S', 100, 1000, "sleep",
+                null, asList("sleep"));
+        ProcessRecord other = new ProcessRecord(pid + 2, 1, 7, 7, 'S', 100, 1000, "app", null,
+                asList("app"));
+        FakeKiller killer = new FakeKiller(asList(current, child, other));
+        killer.diesOn(other, TERM);
+
+        // when
+        KillReport report = killer.killProcess("app", POLICY.withScope(KillScope.GROUP));
+
+        // then
+        assertThat(report.getProcesses()).as("children of current process should not be killed")
+                .isEqualTo(asList(other));
+        assertThat(killer.sent).as("children of current process should not be signalled")
+                .isEqualTo(asList("TERM [" + other.getPid() + "]"));
+    }
+
+    @Test
+    public void testKillProcesses() throws Exception {
+        // given
+        ProcessRecord app = process(10, "app");
+        ProcessRecord helper = process(20, "helper");
+        ProcessRecord immortal = process(30, "helper");
+        ProcessRecord other = process(40, "other");
+        FakeKiller killer = new FakeKiller(asList(app, helper, immortal, other));
+        killer.diesOn(app, TERM);
+        killer.diesOn(helper, INT);
+        ProcessMatcher appMatcher = ProcessMatcher.command("app");
+        ProcessMatcher helperMatcher = ProcessMatcher.command("helper");
+        ProcessMatcher missingMatcher = ProcessMatcher.command("missing");
+
+        // when
+        Map<ProcessMatcher, KillReport> reports = killer.killProcesses(asList(appMatcher,
+                helperMatcher, missingMatcher), POLICY);
+
+        // then
+        assertThat(killer.source.snapshots).as("killProcesses(...) should take one snapshot")
+                .isEqualTo(1);
+        assertThat(killer.sent).as("killProcesses(...) should signal all targets together")
+                .isEqualTo(asList("TERM [10, 20, 30]", "INT [20, 30]", "KILL [30]"));
+        assertThat(reports.get(appMatcher).getProcesses()).as(
+                "killProcesses(...) should report processes of each target").isEqualTo(
+                asList(app));
+        assertThat(reports.get(appMatcher).isSuccessful()).as(
+                "report of killed target should be successful").isTrue();
+        assertThat(reports.get(helperMatcher).getSurvivors()).as(
+                "report of target should contain its survivors").isEqualTo(asList(immortal));
+        assertThat(reports.get(helperMatcher).getOutcome(helper)).as(
+                "report of target should contain outcomes").isEqualTo(KillReport.Outcome.EXITED);
+        assertThat(reports.get(missingMatcher).getProcesses()).as(
+                "report of missing target should be empty").isEmpty();
+    }
+
+    @Test
+    public void testParseSignalErrors() {
+        // given
+        List<String> lines = asList("kill: (1234): No such process",
+                "kill: sending signal to 99 failed: Operation not permitted");
+
+        // when
+        Map<Integer, String> errors = AbstractProcessKiller.parseSignalErrors(lines,
+                asList(1234, 99, 5), 1);
+
+        // then
+        assertThat(errors.keySet()).as("parseSignalErrors(...) should assign errors by PID")
+                .containsOnly(1234, 99);
+        assertThat(errors.get(99)).as("parseSignalErrors(...) should keep whole line").isEqualTo(
+                "kill: sending signal to 99 failed: Operation not permitted");
+    }
+
+    @Test
+    public void testParseGeneralSignalError() {
+        // given
+        List<String> lines = asList("kill: invalid signal");
+
+        // when
+        Map<Integer, String> errors = AbstractProcessKiller.parseSignalErrors(lines,
+                asList(1234, 99), 1);
+
+        // then
+        assertThat(errors.keySet()).as("parseSignalErrors(...) should assign error to all PIDs")
+                .containsOnly(1234, 99);
+        assertThat(errors.get(1234)).as("parseSignalErrors(...) should keep message").isEqualTo(
+                "kill: invalid signal");
+    }
+
+    @Test
+    public void testNoProcesses() throws Exception {
+        // given
+        FakeKiller killer = new FakeKiller(asList(process(13, "other")));
+
+        // when
+        KillReport report = killer.killProcess("app", POLICY);
+
+        // then
+        assertThat(report.getProcesses()).as("killProcess(...) should report no processes")
+                .isEmpty();
+        assertThat(report.isSuccessful()).as("empty report should be successful").isTrue();
+        assertThat(killer.sent).as("killProcess(...) should send no signals").isEmpty();
+    }
+
+    @Test
+    public void testLegacyKillEscalates() throws Exception {
+        // given
+        ProcessRecord stubborn = process(10, "app");
+        FakeKiller killer = new FakeKiller(asList(stubborn));
+        killer.diesOn(stubborn, KILL);
+
+        // when
+        killWithConfiguration(killer, "app");
+
+        // then
+        assertThat(killer.sent).as("killProcess(String) should end with KILL").isEqualTo(
+                asList("TERM [10]", "TERM [10]", "KILL [10]"));
+    }
+
+    @Test
+    public void testLegacyKillFails() throws Exception {
+        // given
+        FakeKiller killer = new FakeKiller(asList(process(10, "app")));
+        ProcessKillerException failure = null;
+
+        // when
+        try {
+            killWithConfiguration(killer, "app");
+        } catch (ProcessKillerException e) {
+            failure = e;
+        }
+
+        // then
+        assertThat(failure).as("killProcess(String) should fail if process survives")
+                .isNotNull();
+        assertThat(failure.getMessage()).as("killProcess(String) should pass report").contains(
+                "10: SURVIVED (KILL)");
+        assertThat(killer.sent).as("killProcess(String) should send each configured signal")
+                .isEqualTo(asList("TERM [10]", "TERM [10]", "KILL [10]"));
+    }
+
+    private void killWithConfiguration(FakeKiller killer, String programName) throws Exception {
+        int attempts = ProcessKillerConfiguration.HOW_MANY_ATTEMPTS_BEFORE_FAIL;
+        int seconds = ProcessKillerConfiguration.HOW_MANY_SECONDS_BETWEEN_ATTEMPTS;
+        try {
+            ProcessKillerConfiguration.HOW_MANY_ATTEMPTS_BEFORE_FAIL = 2;
+            ProcessKillerConfiguration.HOW_MANY_SECONDS_BETWEEN_ATTEMPTS = 0;
+            killer.killProcess(programName);
+        } finally {
+            ProcessKillerConfiguration.HOW_MANY_ATTEMPTS_BEFORE_FAIL = attempts;
+            ProcessKillerConfiguration.HOW_MANY_SECONDS_BETWEEN_ATTEMPTS = seconds;
+        }
+    }
+
+    private ProcessRecord process(int pid, String command) {
+        return process(pid, 1, command);
+    }
+
+    private ProcessRecord process(int pid, int parentPid, String command) {
+        return new ProcessRecord(pid, parentPid, pid, pid, 'S', 100, 1000, command, null,
+                asList(command));
+    }
+
+    private static class FakeKiller extends AbstractProcessKiller {
+        private final FakeSource source;
+        private final Map<ProcessRecord, Signal> fatalSignals;
+        private final List<ProcessRecord> denied;
+        private final List<String> sent;
+
+        FakeKiller(List<ProcessRecord> processes) {
+            this(new FakeSource(processes));
+        }
+
+        private FakeKiller(FakeSource source) {
+            super(source);
+            this.source = source;
+            fatalSignals = new HashMap<ProcessRecord, Signal>();
+            denied = new ArrayList<ProcessRecord>();
+            sent = new ArrayList<String>();
+        }
+
+        void diesOn(ProcessRecord process, Signal signal) {
+            fatalSignals.put(process, signal);
+        }
+
+        void deniedFor(ProcessRecord process) {
+            denied.add(process);
+        }
+
+        @Override
+        protected Map<Integer, String> sendSignal(Signal signal, List<Integer> pids) {
+            sent.add(signal + " " + pids);
+            Map<Integer, String> errors = new LinkedHashMap<Integer, String>();
+            for (ProcessRecord process : new ArrayList<ProcessRecord>(source.processes))
+                if (pids.contains(process.getPid())) {
+                    if (denied.contains(process))
+                        errors.put(process.getPid(), "kill: (" + process.getPid()
+                                + "): Operation not permitted");
+                    else if (fatalSignals.get(process) == signal)
+                        source.processes.remove(process);
+                }
+            return errors;
+        }
+    }
+
+    private static class FakeSource implements ProcessTableSource {
+        private final List<ProcessRecord> processes;
+        private int snapshots;
+
+        FakeSource(List<ProcessRecord> processes) {
+            this.processes = new ArrayList<ProcessRecord>(processes);
+        }
+
+        @Override
+        public ProcessTable getProcessTable() {
+            snapshots++;
+            return new ProcessTable(processes);
+        }
+
+        @Override
+        public List<ProcessRecord> getRunning(Collection<ProcessRecord> checked) {
+            return new ProcessTable(processes).getRunning(checked);
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.jsdpu.process.killers.Signal.INT;
+import static net.jsdpu.process.killers.Signal.KILL;
+import static net.jsdpu.process.killers.Signal.TERM;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestKillPolicy {
+    @Test
+    public void testDefault() {
+        // given
+        KillPolicy policy = KillPolicy.DEFAULT;
+
+        // when
+        List<Signal> signals = new ArrayList<Signal>();
+        List<Long> deadlines = new ArrayList<Long>();
+        for (KillPolicy.Stage stage : policy.getStages()) {
+            signals.add(stage.getSignal());
+            deadlines.add(stage.getDeadline(MILLISECONDS));
+        }
+
+        // then
+        assertThat(signals).as("DEFAULT should escalate TERM, INT, KILL").isEqualTo(
+                asList(TERM, INT, KILL));
+        assertThat(deadlines).as("DEFAULT should wait 10s, 5s, 5s").isEqualTo(
+                asList(10000L, 5000L, 5000L));
+    }
+
+    @Test
+    public void testConfigurationPolicy() {
+        // given
+        int attempts = ProcessKillerConfiguration.HOW_MANY_ATTEMPTS_BEFORE_FAIL;
+        int seconds = ProcessKillerConfiguration.HOW_MANY_SECONDS_BETWEEN_ATTEMPTS;
+
+        // when
+        KillPolicy policy;
+        try {
+            ProcessKillerConfiguration.HOW_MANY_ATTEMPTS_BEFORE_FAIL = 2;
+            ProcessKillerConfiguration.HOW_MANY_SECONDS_BETWEEN_ATTEMPTS = 7;
+            policy = ProcessKillerConfiguration.getPolicy();
+        } finally {
+            ProcessKillerConfiguration.HOW_MANY_ATTEMPTS_BEFORE_FAIL = attempts;
+            ProcessKillerConfiguration.HOW_MANY_SECONDS_BETWEEN_ATTEMPTS = seconds;
+        }
+
+        // then
+        assertThat(policy.getStages()).as(
+                "getPolicy() should make stage for each attempt and final KILL").hasSize(3);
+        for (KillPolicy.Stage stage : policy.getStages())
+            assertThat(stage.getDeadline(SECONDS)).as("getPolicy() should wait between attempts")
+                    .isEqualTo(7L);
+        assertThat(policy.getStages().get(0).getSignal()).as("getPolicy() should send TERM first")
+                .isEqualTo(TERM);
+        assertThat(policy.getStages().get(1).getSignal()).as("getPolicy() should repeat TERM")
+                .isEqualTo(TERM);
+        assertThat(policy.getStages().get(2).getSignal()).as("getPolicy() should end with KILL")
+                .isEqualTo(KILL);
+    }
+
+    @Test
+    public void testImmutable() {
+        // given
+        KillPolicy term = KillPolicy.signal(TERM, 1, SECONDS);
+
+        // when
+        KillPolicy kill = term.then(KILL, 500, MILLISECONDS);
+        KillPolicy fast = kill.withCheckIntervals(5, 10, MILLISECONDS);
+
+        // then
+        assertThat(term.getStages()).as("then(...) should not modify policy").hasSize(1);
+        assertThat(kill.getStages()).as("then(...) should add stage").hasSize(2);
+        assertThat(kill.getStages().get(1).getDeadline(MILLISECONDS)).as(
+                "then(...) should convert deadline").isEqualTo(500L);
+        assertThat(kill.getInitialCheckInterval(MILLISECONDS)).as(
+                "withCheckIntervals(...) should not modify policy").isEqualTo(
+                ProcessExitWaiter.INITIAL_MILLISECONDS_BETWEEN_CHECKS);
+        assertThat(fast.getInitialCheckInterval(MILLISECONDS)).as(
+                "withCheckIntervals(...) should set initial interval").isEqualTo(5L);
+        assertThat(fast.getMaxCheckInterval(MILLISECONDS)).as(
+                "withCheckIntervals(...) should set max interval").isEqualTo(10L);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStagesUnmodifiable() {
+        // given
+        KillPolicy policy = KillPolicy.DEFAULT;
+
+        // when
+        policy.getStages().clear();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDeadline() {
+        // given
+        KillPolicy policy = KillPolicy.signal(TERM, 1, SECONDS);
+
+        // when
+        policy.then(KILL, -1, SECONDS);
+    }
+}
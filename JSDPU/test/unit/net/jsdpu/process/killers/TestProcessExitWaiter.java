@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestProcessExitWaiter {
+    @Test
+    public void testWaitForFinishedProcesses() throws Exception {
+        // given
+        ProcessRecord first = process(10);
+        ProcessRecord second = process(11);
+        FinishingSource source = new FinishingSource(3);
+        ProcessExitWaiter waiter = new ProcessExitWaiter(source);
+
+        // when
+        long start = System.nanoTime();
+        List<ProcessRecord> running = waiter.waitFor(asList(first, second), 30, SECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        // then
+        assertThat(running).as("waitFor(...) should return no running processes").isEmpty();
+        assertThat(source.checks).as("waitFor(...) should stop checking after processes finish")
+                .isEqualTo(3);
+        assertThat(NANOSECONDS.toSeconds(elapsed)).as(
+                "waitFor(...) should return long before timeout").isLessThan(1L);
+    }
+
+    @Test
+    public void testWaitForTimeout() throws Exception {
+        // given
+        ProcessRecord process = process(10);
+        FinishingSource source = new FinishingSource(Integer.MAX_VALUE);
+        ProcessExitWaiter waiter = new ProcessExitWaiter(source);
+
+        // when
+        List<ProcessRecord> running = waiter.waitFor(asList(process), 50, MILLISECONDS);
+
+        // then
+        assertThat(running).as("waitFor(...) should return processes running after timeout")
+                .isEqualTo(asList(process));
+        assertThat(source.checks).as("waitFor(...) should check processes more than once")
+                .isGreaterThan(1);
+    }
+
+    private ProcessRecord process(int pid) {
+        return new ProcessRecord(pid, 1, pid, pid, 'S', 100, 1000, "app", null, asList("app"));
+    }
+
+    private static class FinishingSource implements ProcessTableSource {
+        private final int finishAfter;
+        private int checks;
+
+        FinishingSource(int finishAfter) {
+            this.finishAfter = finishAfter;
+        }
+
+        @Override
+        public ProcessTable getProcessTable() {
+            return new ProcessTable(new ArrayList<ProcessRecord>());
+        }
+
+        @Override
+        public List<ProcessRecord> getRunning(Collection<ProcessRecord> processes) {
+            return ++checks < finishAfter ? new ArrayList<ProcessRecord>(processes)
+                    : new ArrayList<ProcessRecord>();
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.process.killers.ProcessMatcher.command;
+import static net.jsdpu.process.killers.ProcessMatcher.commandLine;
+import static net.jsdpu.process.killers.ProcessMatcher.executable;
+import static net.jsdpu.process.killers.ProcessMatcher.jar;
+import static net.jsdpu.process.killers.ProcessMatcher.program;
+import static net.jsdpu.process.killers.ProcessMatcher.uid;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class TestProcessMatcher {
+    private final ProcessRecord firefox = process(1000, "/usr/lib/firefox/firefox",
+            "/usr/lib/firefox/firefox", "-new-tab", "http://example.com");
+    private final ProcessRecord grep = process(1000, "/bin/grep", "grep", "firefox");
+    private final ProcessRecord application = process(1001, "/usr/bin/java", "java", "-Xmx64m",
+            "-jar", "/opt/app/app.jar", "--update");
+    private final ProcessRecord editor = process(1000, "/usr/bin/vim", "vim", "-jar", "app.jar");
+
+    @Test
+    public void testCommand() {
+        // given
+        ProcessMatcher matcher = command("firefox");
+
+        // when
+        boolean matchesFirefox = matcher.matches(firefox);
+        boolean matchesGrep = matcher.matches(grep);
+
+        // then
+        assertThat(matchesFirefox).as("command(String) should match base name of argv[0]")
+                .isTrue();
+        assertThat(matchesGrep).as("command(String) should ignore other arguments").isFalse();
+    }
+
+    @Test
+    public void testExecutable() {
+        // given
+        ProcessMatcher matcher = executable("/usr/lib/firefox/firefox");
+
+        // when
+        boolean matchesFirefox = matcher.matches(firefox);
+        boolean matchesGrep = matcher.matches(grep);
+
+        // then
+        assertThat(matchesFirefox).as("executable(String) should match executable").isTrue();
+        assertThat(matchesGrep).as("executable(String) should not match other executable")
+                .isFalse();
+    }
+
+    @Test
+    public void testJar() {
+        // given
+        ProcessMatcher byName = jar("app.jar");
+        ProcessMatcher byPath = jar("/opt/app/app.jar");
+
+        // when
+        boolean nameMatches = byName.matches(application);
+        boolean pathMatches = byPath.matches(application);
+        boolean otherPathMatches = jar("/tmp/app.jar").matches(application);
+
+        // then
+        assertThat(nameMatches).as("jar(String) should match JAR's name").isTrue();
+        assertThat(pathMatches).as("jar(String) should match JAR's path").isTrue();
+        assertThat(otherPathMatches).as("jar(String) should not match other path").isFalse();
+        assertThat(byName.matches(editor)).as("jar(String) should match only Java processes")
+                .isFalse();
+    }
+
+    @Test
+    public void testCommandLineAndUid() {
+        // given
+        ProcessMatcher matcher = commandLine("-jar \\S*app\\.jar").and(uid(1001));
+
+        // when
+        boolean matchesApplication = matcher.matches(application);
+        boolean matchesEditor = matcher.matches(editor);
+
+        // then
+        assertThat(matchesApplication).as("and(...) should match if both matchers match")
+                .isTrue();
+        assertThat(matchesEditor).as("and(...) should not match if one matcher doesn't match")
+                .isFalse();
+        assertThat(uid(1000).or(jar("app.jar")).negate().matches(application)).as(
+                "negate() should reverse or(...)").isFalse();
+    }
+
+    @Test
+    public void testProgram() {
+        // given
+        ProcessMatcher jarMatcher = program("app.jar");
+        ProcessMatcher commandMatcher = program("firefox");
+        ProcessMatcher pathMatcher = program("/usr/lib/firefox/firefox");
+
+        // when
+        boolean jarMatches = jarMatcher.matches(application);
+        boolean commandMatches = commandMatcher.matches(firefox);
+        boolean pathMatches = pathMatcher.matches(firefox);
+
+        // then
+        assertThat(jarMatches).as("program(String) should match JARs").isTrue();
+        assertThat(commandMatches).as("program(String) should match commands").isTrue();
+        assertThat(pathMatches).as("program(String) should match executables").isTrue();
+        assertThat(commandMatcher.matches(grep)).as(
+                "program(String) should not match processes mentioning program").isFalse();
+    }
+
+    @Test
+    public void testWindowsProgram() {
+        // given
+        ProcessRecord notepad = new ProcessRecord(100, 1, -1, -1, 'R', 100, -1, "NOTEPAD.EXE",
+                "C:\\Windows\\NOTEPAD.EXE", asList("C:\\Windows\\NOTEPAD.EXE", "todo.txt"));
+        ProcessMatcher matcher = program("notepad", true);
+
+        // when
+        boolean matchesNotepad = matcher.matches(notepad);
+        boolean matchesUnix = program("notepad", false).matches(notepad);
+
+        // then
+        assertThat(matchesNotepad).as(
+                "program(String) should ignore case and .exe extension on Windows").isTrue();
+        assertThat(matchesUnix).as("program(String) should compare names exactly elsewhere")
+                .isFalse();
+    }
+
+    @Test
+    public void testScriptProgram() {
+        // given
+        ProcessRecord interpreted = process(1000, "/usr/bin/python3", "python3", "-u",
+                "/usr/bin/foo", "--verbose");
+        ProcessRecord shebang = new ProcessRecord(100, 1, 100, 100, 'S', 100, 1000, "foo",
+                "/usr/bin/python3", asList("/usr/bin/python3", "/usr/bin/foo"));
+        ProcessRecord editor = process(1000, "/usr/bin/vim", "vim", "/usr/bin/foo");
+        ProcessMatcher matcher = program("foo");
+
+        // when
+        boolean matchesInterpreted = matcher.matches(interpreted);
+        boolean matchesShebang = matcher.matches(shebang);
+        boolean matchesEditor = matcher.matches(editor);
+
+        // then
+        assertThat(matchesInterpreted).as("program(String) should match interpreted scripts")
+                .isTrue();
+        assertThat(matchesShebang).as("program(String) should match process' name").isTrue();
+        assertThat(matchesEditor).as("program(String) should not match other programs' files")
+                .isFalse();
+    }
+
+    private ProcessRecord process(int uid, String executable, String... arguments) {
+        return new ProcessRecord(100, 1, 100, 100, 'S', 100, uid, arguments[0], executable,
+                asList(arguments));
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicate;
+
+public class TestProcessTable {
+    @Test
+    public void testSnapshot() {
+        // given
+        ProcessRecord first = process(10, 100, 'S', "app");
+        ProcessRecord second = process(11, 100, 'S', "other");
+        ProcessRecord zombie = process(12, 100, 'Z', "app");
+        ProcessTable table = new ProcessTable(asList(first, second, zombie));
+
+        // when
+        List<ProcessRecord> found = table.find(new Predicate<ProcessRecord>() {
+            @Override
+            public boolean apply(ProcessRecord process) {
+                return process.getCommandLine().contains("app");
+            }
+        });
+
+        // then
+        assertThat(found).as("find(Predicate) should return matching processes").isEqualTo(
+                asList(first, zombie));
+        assertThat(table.getProcess(11)).as("getProcess(int) should find process by PID")
+                .isSameAs(second);
+        assertThat(table.getProcess(13)).as("getProcess(int) should return null for missing PID")
+                .isNull();
+    }
+
+    @Test
+    public void testRunning() {
+        // given
+        ProcessRecord running = process(10, 100, 'S', "app");
+        ProcessRecord finished = process(11, 100, 'S', "app");
+        ProcessRecord reused = process(12, 100, 'S', "app");
+        ProcessRecord zombie = process(13, 100, 'S', "app");
+        ProcessTable table = new ProcessTable(asList(running, process(12, 200, 'S', "new"),
+                process(13, 100, 'Z', "app")));
+
+        // when
+        List<ProcessRecord> stillRunning = table.getRunning(asList(running, finished, reused,
+                zombie));
+
+        // then
+        assertThat(stillRunning).as(
+                "getRunning(Collection) should recognize processes by PID and start time")
+                .isEqualTo(asList(running));
+    }
+
+    @Test
+    public void testTree() {
+        // given
+        ProcessRecord init = new ProcessRecord(1, 0, 1, 1, 'S', 1, 0, "init", null,
+                asList("init"));
+        ProcessRecord parent = new ProcessRecord(10, 1, 10, 5, 'S', 100, 1000, "app", null,
+                asList("app"));
+        ProcessRecord child = new ProcessRecord(20, 10, 10, 5, 'S', 100, 1000, "helper", null,
+                asList("helper"));
+        ProcessRecord grandchild = new ProcessRecord(30, 20, 30, 5, 'S', 100, 1000, "worker",
+                null, asList("worker"));
+        ProcessTable table = new ProcessTable(asList(init, grandchild, parent, child));
+
+        // when
+        List<ProcessRecord> descendants = table.getDescendants(parent);
+        List<ProcessRecord> ancestors = table.getAncestors(grandchild);
+
+        // then
+        assertThat(table.getChildren(parent)).as("getChildren(...) should return direct children")
+                .isEqualTo(asList(child));
+        assertThat(descendants).as("getDescendants(...) should return descendants by depth")
+                .isEqualTo(asList(child, grandchild));
+        assertThat(ancestors).as("getAncestors(...) should return ancestors from parent")
+                .isEqualTo(asList(child, parent, init));
+        assertThat(table.getProcessGroup(10)).as("getProcessGroup(int) should return group")
+                .isEqualTo(asList(parent, child));
+        assertThat(table.getSession(5)).as("getSession(int) should return session").isEqualTo(
+                asList(grandchild, parent, child));
+    }
+
+    @Test
+    public void testReusedParentPid() {
+        // given
+        ProcessRecord orphan = new ProcessRecord(20, 10, 20, 5, 'S', 100, 1000, "helper", null,
+                asList("helper"));
+        ProcessRecord reused = new ProcessRecord(10, 1, 10, 5, 'S', 200, 1000, "app", null,
+                asList("app"));
+        ProcessTable table = new ProcessTable(asList(orphan, reused));
+
+        // when
+        List<ProcessRecord> children = table.getChildren(reused);
+        List<ProcessRecord> ancestors = table.getAncestors(orphan);
+
+        // then
+        assertThat(children).as("getChildren(...) should skip processes older than parent")
+                .isEmpty();
+        assertThat(ancestors).as("getAncestors(...) should skip parents younger than process")
+                .isEmpty();
+    }
+
+    @Test
+    public void testCachedSource() throws Exception {
+        // given
+        CountingSource source = new CountingSource();
+        CachedProcessTableSource cached = new CachedProcessTableSource(source, 1, MINUTES);
+
+        // when
+        ProcessTable first = cached.getProcessTable();
+        ProcessTable second = cached.getProcessTable();
+        cached.invalidate();
+        ProcessTable third = cached.getProcessTable();
+
+        // then
+        assertThat(second).as("CachedProcessTableSource should reuse snapshot").isSameAs(first);
+        assertThat(third).as("CachedProcessTableSource should take new snapshot after invalidate")
+                .isNotSameAs(first);
+        assertThat(source.snapshots).as("CachedProcessTableSource should take 2 snapshots")
+                .isEqualTo(2);
+    }
+
+    private ProcessRecord process(int pid, long startTime, char state, String command) {
+        return new ProcessRecord(pid, 1, pid, pid, state, startTime, 1000, command, null,
+                asList(command));
+    }
+
+    private static class CountingSource implements ProcessTableSource {
+        private int snapshots;
+
+        @Override
+        public ProcessTable getProcessTable() {
+            snapshots++;
+            return new ProcessTable(new ArrayList<ProcessRecord>());
+        }
+
+        @Override
+        public List<ProcessRecord> getRunning(Collection<ProcessRecord> processes) {
+            return new ArrayList<ProcessRecord>();
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestProcfsScanner {
+    @Test
+    public void testScan() throws IOException {
+        // given
+        File proc = Files.createTempDirectory("proc").toFile();
+        process(proc, 42, "42 (java app) S 1 42 40 0 -1 4194304 0 0 0 0 0 0 0 0 20 0 1 0 1234 0",
+                "java\0-jar\0app.jar\0", "/usr/bin/java");
+        process(proc, 7, "7 (kworker/0:1) I 2 0 0 0 -1 69238880 0 0 0 0 0 0 0 0 20 0 1 0 5 0",
+                "", null);
+        process(proc, 43, "43 (sh) Z 42 42 40 0 -1 4194304 0 0 0 0 0 0 0 0 20 0 1 0 1300 0",
+                "", null);
+        new File(proc, "self").mkdir();
+        new File(proc, "not-a-process").mkdir();
+        ProcfsScanner scanner = new ProcfsScanner(proc);
+
+        // when
+        List<ProcessRecord> records = scanner.scan();
+        ProcessRecord java = scanner.read(42);
+        ProcessRecord missing = scanner.read(44);
+
+        // then
+        assertThat(records).as("scan() should read all processes").hasSize(3);
+        assertThat(java.getName()).as("read(int) should read name").isEqualTo("java app");
+        assertThat(java.getParentPid()).as("read(int) should read parent PID").isEqualTo(1);
+        assertThat(java.getProcessGroup()).as("read(int) should read process group")
+                .isEqualTo(42);
+        assertThat(java.getSession()).as("read(int) should read session").isEqualTo(40);
+        assertThat(java.getStartTime()).as("read(int) should read start time").isEqualTo(1234);
+        assertThat(java.getArguments()).as("read(int) should read command line").isEqualTo(
+                asList("java", "-jar", "app.jar"));
+        assertThat(java.getExecutable()).as("read(int) should read executable").isEqualTo(
+                "/usr/bin/java");
+        assertThat(scanner.read(7).getCommandLine()).as(
+                "read(int) should display name of process without command line").isEqualTo(
+                "[kworker/0:1]");
+        assertThat(scanner.read(43).isZombie()).as("read(int) should read state").isTrue();
+        assertThat(missing).as("read(int) should return null for missing process").isNull();
+    }
+
+    private void process(File proc, int pid, String stat, String cmdline, String executable)
+            throws IOException {
+        File directory = new File(proc, Integer.toString(pid));
+        directory.mkdir();
+        write(new File(directory, "stat"), stat + "\n");
+        write(new File(directory, "cmdline"), cmdline);
+        if (executable != null)
+            Files.createSymbolicLink(new File(directory, "exe").toPath(),
+                    new File(executable).toPath());
+    }
+
+    private void write(File file, String content) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(content.getBytes("UTF-8"));
+        }
+    }
+}
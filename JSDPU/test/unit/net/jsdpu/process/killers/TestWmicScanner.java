@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.killers;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestWmicScanner {
+    @Test
+    public void testParse() {
+        // given
+        String line = "HOST,\"C:\\Program Files\\Java\\bin\\javaw.exe\" -jar app,1.jar,"
+                + "20130512093015.123456+120,C:\\Program Files\\Java\\bin\\javaw.exe,"
+                + "javaw.exe,812,4242";
+        String systemLine = "HOST,,,,System Idle Process,0,0";
+
+        // when
+        ProcessRecord process = WmicScanner.parse(line);
+        ProcessRecord system = WmicScanner.parse(systemLine);
+        ProcessRecord header = WmicScanner.parse("Node,CommandLine,CreationDate,ExecutablePath,"
+                + "Name,ParentProcessId,ProcessId");
+
+        // then
+        assertThat(process.getPid()).as("parse(String) should read PID").isEqualTo(4242);
+        assertThat(process.getParentPid()).as("parse(String) should read parent PID")
+                .isEqualTo(812);
+        assertThat(process.getArguments()).as("parse(String) should split command line")
+                .isEqualTo(asList("C:\\Program Files\\Java\\bin\\javaw.exe", "-jar", "app,1.jar"));
+        assertThat(process.getExecutable()).as("parse(String) should read executable")
+                .isEqualTo("C:\\Program Files\\Java\\bin\\javaw.exe");
+        assertThat(process.getSession()).as("parse(String) should report sessions as unsupported")
+                .isEqualTo(-1);
+        assertThat(process.getStartTime()).as("parse(String) should read creation date")
+                .isEqualTo(20130512093015123L);
+        assertThat(system.getArguments()).as("parse(String) should accept empty command line")
+                .isEmpty();
+        assertThat(header).as("parse(String) should skip header").isNull();
+    }
+
+    @Test
+    public void testSplitCommandLine() {
+        // given
+        String commandLine = "app.exe  \"quoted arg\" a\\\\b \"esc\\\"aped\" \"\"";
+
+        // when
+        List<String> arguments = WmicScanner.splitCommandLine(commandLine);
+
+        // then
+        assertThat(arguments).as("splitCommandLine(String) should follow C runtime rules")
+                .isEqualTo(asList("app.exe", "quoted arg", "a\\\\b", "esc\"aped", ""));
+    }
+}
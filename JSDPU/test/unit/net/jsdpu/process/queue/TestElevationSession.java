@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.process.queue.QueueCaller.FAILED_TO_START;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jsdpu.process.elevated.LinuxElevatedProcessBuilder;
+
+import org.junit.Test;
+
+public class TestElevationSession {
+    @Test
+    public void testSession() throws IOException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        ElevationSession session = new ElevationSession(StandInBuilder.class.getName());
+        StandInBuilder.started.set(0);
+
+        // when
+        try {
+            session.run(encoder, 0, asList(entry(StandInBuilder.class, "echo a; exit 2"),
+                    entry(StandInBuilder.class, "exit 0")));
+            session.run(encoder, 5, asList(entry(StandInBuilder.class, "echo b")));
+        } finally {
+            session.close();
+        }
+        RecordingListener listener = decode(frames);
+
+        // then
+        assertThat(StandInBuilder.started.get()).as("session should be elevated once")
+                .isEqualTo(1);
+        assertThat(listener.exitValues).as("session should shift indexes to place in queue")
+                .isEqualTo(exitValues(0, 2, 1, 0, 5, 0));
+        assertThat(listener.outputs.get(0)).as("session should forward output").isEqualTo("a\n");
+        assertThat(listener.outputs.get(5)).as("session should forward output").isEqualTo("b\n");
+    }
+
+    @Test
+    public void testSessionWithoutInput() throws IOException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        ElevationSession session = new ElevationSession(NoInputBuilder.class.getName());
+        StandInBuilder.started.set(0);
+
+        // when
+        try {
+            session.run(encoder, 1, asList(entry(NoInputBuilder.class, "echo a; exit 2"),
+                    entry(NoInputBuilder.class, "exit 0")));
+            session.run(encoder, 3, asList(entry(NoInputBuilder.class, "echo b")));
+        } finally {
+            session.close();
+        }
+        RecordingListener listener = decode(frames);
+
+        // then
+        assertThat(StandInBuilder.started.get()).as(
+                "session should elevate each entry if input isn't forwarded").isEqualTo(3);
+        assertThat(listener.exitValues).as("session should run each entry").isEqualTo(
+                exitValues(1, 2, 2, 0, 3, 0));
+        assertThat(listener.outputs.get(1)).as("session should forward output").isEqualTo("a\n");
+        assertThat(listener.outputs.get(3)).as("session should forward output").isEqualTo("b\n");
+    }
+
+    @Test
+    public void testFailedSession() throws IOException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        ElevationSession session = new ElevationSession("net.jsdpu.NonexistentBuilder");
+
+        // when
+        try {
+            session.run(encoder, 0, asList(entry(StandInBuilder.class, "exit 0")));
+            session.run(encoder, 1, asList(entry(StandInBuilder.class, "exit 0")));
+        } finally {
+            session.close();
+        }
+        RecordingListener listener = decode(frames);
+
+        // then
+        assertThat(listener.exitValues).as("session should fail entries it cannot run")
+                .isEqualTo(exitValues(0, FAILED_TO_START, 1, FAILED_TO_START));
+    }
+
+    private QueueEntry entry(Class<?> elevation, String script) {
+        return new QueueEntry(asList("sh", "-c", script), null, System.getenv(), false,
+                elevation.getName());
+    }
+
+    private Map<Integer, Integer> exitValues(int... indexesAndValues) {
+        Map<Integer, Integer> exitValues = new HashMap<Integer, Integer>();
+        for (int i = 0; i < indexesAndValues.length; i += 2)
+            exitValues.put(indexesAndValues[i], indexesAndValues[i + 1]);
+        return exitValues;
+    }
+
+    private RecordingListener decode(ByteArrayOutputStream frames) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new FrameDecoder(new ByteArrayInputStream(frames.toByteArray())).decode(listener);
+        return listener;
+    }
+
+    /**
+     * ElevatedProcessBuilder running commands without elevation.
+     */
+    public static class StandInBuilder extends LinuxElevatedProcessBuilder {
+        private static final AtomicInteger started = new AtomicInteger();
+
+        @Override
+        public ProcessBuilder getProcessBuilder() {
+            started.incrementAndGet();
+            return getBuilder().command(getCommand());
+        }
+    }
+
+    /**
+     * StandInBuilder that doesn't forward input, like Windows' UAC handler.
+     */
+    public static class NoInputBuilder extends StandInBuilder {
+        @Override
+        public boolean isInputForwarded() {
+            return false;
+        }
+    }
+
+    private static class RecordingListener implements FrameDecoder.Listener {
+        private final Map<Integer, String> outputs = new HashMap<Integer, String>();
+        private final Map<Integer, Integer> exitValues = new HashMap<Integer, Integer>();
+
+        @Override
+        public void started(int process) {
+        }
+
+        @Override
+        public void write(int process, byte stream, byte[] payload, int offset, int length) {
+            String output = outputs.containsKey(process) ? outputs.get(process) : "";
+            outputs.put(process, output + new String(payload, offset, length));
+        }
+
+        @Override
+        public void exited(int process, int exitValue) {
+            exitValues.put(process, exitValue);
+        }
+    }
+}
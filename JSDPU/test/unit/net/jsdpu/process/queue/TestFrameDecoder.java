@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static net.jsdpu.process.queue.QueueFrames.MAX_PAYLOAD;
+import static net.jsdpu.process.queue.QueueFrames.OUTPUT;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestFrameDecoder {
+    @Test
+    public void testLongPayload() throws IOException {
+        // given
+        byte[] payload = new byte[2 * MAX_PAYLOAD + 1];
+        for (int i = 0; i < payload.length; i++)
+            payload[i] = (byte) i;
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        encoder.write(5, OUTPUT, payload, 0, payload.length);
+        encoder.exited(5, 1);
+        RecordingListener listener = new RecordingListener();
+
+        // when
+        new FrameDecoder(new ByteArrayInputStream(frames.toByteArray())).decode(listener);
+
+        // then
+        assertThat(listener.output.toByteArray()).as(
+                "FrameDecoder should join payload split into several frames").isEqualTo(payload);
+        assertThat(listener.exitValue).as("FrameDecoder should decode exit frame").isEqualTo(1);
+    }
+
+    @Test
+    public void testSingleFrame() throws IOException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        encoder.exited(0, 2);
+        FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(frames.toByteArray()));
+        RecordingListener listener = new RecordingListener();
+
+        // when
+        boolean decoded = decoder.decodeFrame(listener);
+        boolean decodedAfterEnd = decoder.decodeFrame(listener);
+
+        // then
+        assertThat(decoded).as("FrameDecoder should decode single frame").isTrue();
+        assertThat(listener.exitValue).as("FrameDecoder should decode exit frame").isEqualTo(2);
+        assertThat(decodedAfterEnd).as("FrameDecoder should report end of source").isFalse();
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedFrame() throws IOException {
+        // given
+        byte[] frames = new byte[] { 42, 0, 0, 0, 0, 0, 0, 0, 0 };
+
+        // when
+        new FrameDecoder(new ByteArrayInputStream(frames)).decode(new RecordingListener());
+    }
+
+    private static class RecordingListener implements FrameDecoder.Listener {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private Integer exitValue;
+
+        @Override
+        public void started(int process) {
+        }
+
+        @Override
+        public void write(int process, byte stream, byte[] payload, int offset, int length) {
+            output.write(payload, offset, length);
+        }
+
+        @Override
+        public void exited(int process, int exitValue) {
+            this.exitValue = exitValue;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static net.jsdpu.process.queue.QueueFrames.ERROR;
+import static net.jsdpu.process.queue.QueueFrames.OUTPUT;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class TestInputStreamSplitter {
+    @Test
+    public void testSplitting() throws IOException, InterruptedException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        encoder.started(0);
+        write(encoder, 0, OUTPUT, "line1\n");
+        write(encoder, 0, ERROR, "error1\n");
+        write(encoder, 0, OUTPUT, "line2\nFIN:0\n");
+        encoder.exited(0, 0);
+        encoder.started(1);
+        encoder.exited(1, 3);
+        encoder.started(2);
+        write(encoder, 2, ERROR, "error3");
+        encoder.exited(2, -1);
+        InputStreamSplitter splitter = new InputStreamSplitter(new ByteArrayInputStream(
+                frames.toByteArray()), 3);
+
+        // when
+        splitter.start();
+        String output1 = read(splitter.getSplittedStreams()[0]);
+        String error1 = read(splitter.getSplittedErrorStreams()[0]);
+        String output2 = read(splitter.getSplittedStreams()[1]);
+        String output3 = read(splitter.getSplittedStreams()[2]);
+        String error3 = read(splitter.getSplittedErrorStreams()[2]);
+
+        // then
+        assertThat(output1).as("InputStreamSplitter should pass output without interpreting it")
+                .isEqualTo("line1\nline2\nFIN:0\n");
+        assertThat(error1).as("InputStreamSplitter should split error output")
+                .isEqualTo("error1\n");
+        assertThat(output2).as("InputStreamSplitter should split stream on exit frames")
+                .isEmpty();
+        assertThat(output3).as("InputStreamSplitter should split stream on exit frames")
+                .isEmpty();
+        assertThat(error3).as("InputStreamSplitter should split error output").isEqualTo(
+                "error3");
+        assertThat(splitter.waitForReturnedCode(0)).as(
+                "InputStreamSplitter should read returned codes").isEqualTo(0);
+        assertThat(splitter.waitForReturnedCode(1)).as(
+                "InputStreamSplitter should read returned codes").isEqualTo(3);
+        assertThat(splitter.waitForReturnedCode(2)).as(
+                "InputStreamSplitter should read returned codes").isEqualTo(-1);
+    }
+
+    @Test
+    public void testPrematureEnd() throws IOException, InterruptedException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        write(encoder, 0, OUTPUT, "line1");
+        encoder.exited(0, 2);
+        write(encoder, 1, OUTPUT, "line2");
+        byte[] source = frames.toByteArray();
+        InputStreamSplitter splitter = new InputStreamSplitter(new ByteArrayInputStream(source,
+                0, source.length - 2), 2);
+
+        // when
+        splitter.start();
+        String output1 = read(splitter.getSplittedStreams()[0]);
+        String output2 = read(splitter.getSplittedStreams()[1]);
+
+        // then
+        assertThat(output1).as("InputStreamSplitter should split stream on exit frames")
+                .isEqualTo("line1");
+        assertThat(output2).as("InputStreamSplitter should close streams at the end of source")
+                .isEqualTo("lin");
+        assertThat(splitter.waitForReturnedCode(1)).as(
+                "InputStreamSplitter should return null for missing returned code").isNull();
+    }
+
+    @Test
+    public void testFramesSplitBetweenReads() throws IOException, InterruptedException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        write(encoder, 1, OUTPUT, "line2");
+        write(encoder, 0, OUTPUT, "line1");
+        encoder.exited(0, 12);
+        encoder.exited(1, 7);
+        InputStream source = new ByteArrayInputStream(frames.toByteArray()) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        InputStreamSplitter splitter = new InputStreamSplitter(source, 2);
+
+        // when
+        splitter.start();
+        String output1 = read(splitter.getSplittedStreams()[0]);
+        String output2 = read(splitter.getSplittedStreams()[1]);
+
+        // then
+        assertThat(output1).as("InputStreamSplitter should decode frames split between reads")
+                .isEqualTo("line1");
+        assertThat(output2).as("InputStreamSplitter should split interleaved output")
+                .isEqualTo("line2");
+        assertThat(splitter.waitForReturnedCode(0)).as(
+                "InputStreamSplitter should read returned codes").isEqualTo(12);
+        assertThat(splitter.waitForReturnedCode(1)).as(
+                "InputStreamSplitter should read returned codes").isEqualTo(7);
+    }
+
+    @Test
+    public void testUnreadOutput() throws IOException, InterruptedException,
+            ExecutionException, TimeoutException {
+        // given
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        FrameEncoder encoder = new FrameEncoder(frames);
+        encoder.started(0);
+        byte[] zeros = new byte[200000];
+        encoder.write(0, OUTPUT, zeros, 0, zeros.length);
+        encoder.exited(0, 0);
+        encoder.started(1);
+        write(encoder, 1, OUTPUT, "second\n");
+        encoder.exited(1, 5);
+        InputStreamSplitter splitter = new InputStreamSplitter(new ByteArrayInputStream(
+                frames.toByteArray()), 2);
+
+        // when
+        splitter.start();
+        Integer code2 = splitter.getReturnedCode(1).get(5, TimeUnit.SECONDS);
+        String output2 = read(splitter.getSplittedStreams()[1]);
+        String output1 = read(splitter.getSplittedStreams()[0]);
+
+        // then
+        assertThat(code2).as("InputStreamSplitter shouldn't wait for unread output").isEqualTo(5);
+        assertThat(output2).as("InputStreamSplitter shouldn't wait for unread output").isEqualTo(
+                "second\n");
+        assertThat(output1.length()).as("InputStreamSplitter should keep unread output")
+                .isEqualTo(zeros.length);
+    }
+
+    private void write(FrameEncoder encoder, int process, byte stream, String content)
+            throws IOException {
+        byte[] bytes = content.getBytes();
+        encoder.write(process, stream, bytes, 0, bytes.length);
+    }
+
+    private String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int read;
+        while ((read = stream.read()) >= 0)
+            output.write(read);
+        return output.toString();
+    }
+}
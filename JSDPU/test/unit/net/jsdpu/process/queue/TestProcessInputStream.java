@@ -0,0 +1,132 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.util.Arrays.copyOf;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestProcessInputStream {
+    @Test
+    public void testRead() throws IOException {
+        // given
+        ProcessInputStream stream = new ProcessInputStream(16);
+        byte[] buffer = new byte[16];
+
+        // when
+        stream.add("abc".getBytes(), 0, 3);
+        stream.add('d');
+        int available = stream.available();
+        int read = stream.read(buffer, 0, 16);
+        stream.finish();
+        int end = stream.read();
+
+        // then
+        assertThat(available).as("available() should return number of stored bytes")
+                .isEqualTo(4);
+        assertThat(read).as("read(byte[], int, int) should read all stored bytes").isEqualTo(4);
+        assertThat(new String(buffer, 0, read)).as(
+                "read(byte[], int, int) should read bytes in order").isEqualTo("abcd");
+        assertThat(end).as("read() should return -1 after finish()").isEqualTo(-1);
+    }
+
+    @Test
+    public void testBackpressure() throws IOException, InterruptedException {
+        // given
+        final ProcessInputStream stream = new ProcessInputStream(8);
+        final byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) i;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stream.add(data, 0, data.length);
+                stream.finish();
+            }
+        });
+
+        // when
+        producer.start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int read;
+        while ((read = stream.read(buffer, 0, buffer.length)) >= 0)
+            output.write(buffer, 0, read);
+        producer.join();
+
+        // then
+        assertThat(output.toByteArray()).as(
+                "ProcessInputStream should pass data through bounded buffer").isEqualTo(data);
+    }
+
+    @Test
+    public void testGrowth() throws IOException {
+        // given
+        ProcessInputStream stream = new ProcessInputStream(8, 1024);
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) i;
+        byte[] buffer = new byte[1024];
+
+        // when
+        stream.add(data, 0, 3);
+        stream.read(buffer, 0, 2);
+        stream.add(data, 3, data.length - 3);
+        stream.finish();
+        int read = stream.read(buffer, 2, buffer.length - 2);
+
+        // then
+        assertThat(read).as("add(byte[], int, int) should grow buffer instead of blocking")
+                .isEqualTo(data.length - 2);
+        assertThat(copyOf(buffer, data.length)).as(
+                "ProcessInputStream should keep order of data in grown buffer").isEqualTo(data);
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        // given
+        final ProcessInputStream stream = new ProcessInputStream(8);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                stream.add(new byte[100], 0, 100);
+            }
+        });
+
+        // when
+        producer.start();
+        stream.close();
+        producer.join(5000);
+
+        // then
+        assertThat(producer.isAlive()).as("close() should release blocked producer").isFalse();
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadClosed() throws IOException {
+        // given
+        ProcessInputStream stream = new ProcessInputStream();
+        stream.add('a');
+
+        // when
+        stream.close();
+        stream.read();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.util.Arrays.asList;
+import static net.jsdpu.process.queue.EnqueuedProcessStatus.*;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestProcessQueue {
+    @Test
+    public void testProgress() throws IOException {
+        // given
+        PipedOutputStream frames = new PipedOutputStream();
+        InputStreamSplitter splitter = new InputStreamSplitter(new PipedInputStream(frames), 3);
+        FrameEncoder encoder = new FrameEncoder(frames);
+        List<EnqueuedProcess> processes = new ArrayList<EnqueuedProcess>();
+        for (int i = 0; i < 3; i++)
+            processes.add(new SplittedEnqueuedProcess(splitter, i));
+        ProcessQueue queue = new ProcessQueue(processes);
+        splitter.start();
+
+        // when
+        encoder.started(0);
+        encoder.started(1);
+        encoder.exited(0, 0);
+        queue.iterator().next().waitFor();
+
+        // then
+        assertThat(queue.getStatuses()).as("ProcessQueue should return statuses of processes")
+                .isEqualTo(asList(FINISHED, RUNNING, PENDING));
+        assertThat(queue.getPendingCount()).as("ProcessQueue should count pending processes")
+                .isEqualTo(1);
+        assertThat(queue.getRunningCount()).as("ProcessQueue should count running processes")
+                .isEqualTo(1);
+        assertThat(queue.getFinishedCount()).as("ProcessQueue should count finished processes")
+                .isEqualTo(1);
+        assertThat(queue.isFinished()).as("ProcessQueue shouldn't be finished before all processes")
+                .isFalse();
+
+        // when
+        frames.close();
+        for (EnqueuedProcess process : queue)
+            process.waitFor();
+
+        // then
+        assertThat(queue.isFinished()).as("ProcessQueue should be finished when queue ends")
+                .isTrue();
+    }
+}
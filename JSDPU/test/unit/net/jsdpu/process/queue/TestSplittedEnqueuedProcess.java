@@ -0,0 +1,63 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.jsdpu.process.queue.QueueCaller.FAILED_TO_START;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.Test;
+
+public class TestSplittedEnqueuedProcess {
+    @Test
+    public void testCompletion() throws IOException, InterruptedException {
+        // given
+        PipedOutputStream frames = new PipedOutputStream();
+        InputStreamSplitter splitter = new InputStreamSplitter(new PipedInputStream(frames), 2);
+        FrameEncoder encoder = new FrameEncoder(frames);
+        EnqueuedProcess process1 = new SplittedEnqueuedProcess(splitter, 0);
+        EnqueuedProcess process2 = new SplittedEnqueuedProcess(splitter, 1);
+        splitter.start();
+
+        // when
+        encoder.started(0);
+        boolean finishedBeforeExit = process1.waitFor(10, MILLISECONDS);
+        boolean aliveBeforeExit = process1.isAlive();
+        encoder.exited(0, 3);
+        boolean finishedAfterExit = process1.waitFor(10, SECONDS);
+        frames.close();
+
+        // then
+        assertThat(finishedBeforeExit).as(
+                "EnqueuedProcess should time out when waiting for running process").isFalse();
+        assertThat(aliveBeforeExit).as("EnqueuedProcess should be alive until exit frame")
+                .isTrue();
+        assertThat(finishedAfterExit).as("EnqueuedProcess should finish on exit frame")
+                .isTrue();
+        assertThat(process1.isAlive()).as("EnqueuedProcess shouldn't be alive after exit frame")
+                .isFalse();
+        assertThat(process1.getExitValue()).as("EnqueuedProcess should return exit value")
+                .isEqualTo(3);
+        assertThat(process2.waitFor()).as(
+                "EnqueuedProcess should fail when queue ends before exit frame").isEqualTo(
+                FAILED_TO_START);
+    }
+}
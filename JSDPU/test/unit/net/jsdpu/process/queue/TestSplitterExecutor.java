@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012-2013 Mateusz Kubuszok
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at</p> 
+ * 
+ * <p>http://www.apache.org/licenses/LICENSE-2.0</p>
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.</p>
+ */
+package net.jsdpu.process.queue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.jsdpu.process.queue.SplitterExecutor.THREAD_NAME;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class TestSplitterExecutor {
+    @Test
+    public void testExecute() throws InterruptedException {
+        // given
+        final Thread[] thread = new Thread[1];
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        // when
+        SplitterExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                thread[0] = Thread.currentThread();
+                finished.countDown();
+            }
+        });
+        finished.await(10, SECONDS);
+
+        // then
+        assertThat(thread[0].getName()).as("SplitterExecutor should use named threads")
+                .startsWith(THREAD_NAME);
+        assertThat(thread[0].isDaemon()).as("SplitterExecutor should use daemon threads")
+                .isTrue();
+    }
+
+    @Test
+    public void testExecuteMany() throws InterruptedException {
+        // given
+        final int splitters = 100;
+        final CountDownLatch started = new CountDownLatch(splitters);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // when
+        for (int i = 0; i < splitters; i++)
+            SplitterExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        boolean allStarted = started.await(10, SECONDS);
+        int active = SplitterExecutor.getActiveCount();
+        int overflowing = SplitterExecutor.getOverflowCount();
+        release.countDown();
+
+        // then
+        assertThat(allStarted).as("SplitterExecutor shouldn't make splitters wait for others")
+                .isTrue();
+        assertThat(active).as("SplitterExecutor should count all running splitters")
+                .isGreaterThanOrEqualTo(splitters);
+        assertThat(overflowing).as("SplitterExecutor should count splitters above pool's bound")
+                .isGreaterThan(0);
+    }
+}